@@ -4,30 +4,128 @@
 -- Connect to the database
 --\c loganalyzer;
 
--- Create the log severity enum type
-CREATE TYPE severity_enum AS ENUM ('INFO', 'DEBUG', 'WARNING', 'ERROR', 'CRITICAL');
+-- Create the log severity enum type, unless an earlier run created it
+DO $$
+BEGIN
+    CREATE TYPE severity_enum AS ENUM ('INFO', 'DEBUG', 'WARNING', 'ERROR', 'CRITICAL');
+EXCEPTION
+    WHEN duplicate_object THEN NULL;
+END $$;
 
--- Create the logs table (optional, as Hibernate will create it)
+-- Create the logs table, range-partitioned by day on timestamp. Hibernate would create a plain
+-- table, so run this script before the first start. The application creates the daily partitions
+-- (logs_pYYYYMMDD) ahead of time; the default partition only catches logs outside that window.
+-- The primary key of a partitioned table must include the partition key.
 CREATE TABLE IF NOT EXISTS logs (
-    id SERIAL PRIMARY KEY,
-    timestamp TIMESTAMP NOT NULL,
+    id BIGINT NOT NULL,
+    timestamp TIMESTAMP WITH TIME ZONE NOT NULL,
     application VARCHAR(255) NOT NULL,
     message TEXT NOT NULL,
     severity severity_enum NOT NULL,
     source VARCHAR(255),
-    host VARCHAR(255)
+    host VARCHAR(255),
+    -- Metadata as a JSON array of {"key": ..., "value": ...} objects
+    metadata JSONB,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE IF NOT EXISTS logs_default PARTITION OF logs DEFAULT;
+
+-- Supports containment searches such as metadata @> '[{"key": "region", "value": "eu"}]'
+CREATE INDEX IF NOT EXISTS idx_logs_metadata ON logs USING GIN (metadata jsonb_path_ops);
+
+-- Migrating a database created before partitioning: rename the old tables together with their primary key
+-- and indexes, which would otherwise keep the names this script uses, run this script, create the daily
+-- partitions for the old rows, then copy the rows over.
+-- ALTER TABLE logs RENAME TO logs_unpartitioned;
+-- ALTER TABLE logs_unpartitioned RENAME CONSTRAINT logs_pkey TO logs_unpartitioned_pkey;
+-- ALTER INDEX IF EXISTS idx_logs_timestamp RENAME TO idx_logs_unpartitioned_timestamp;
+-- ALTER INDEX IF EXISTS idx_logs_timestamp_id RENAME TO idx_logs_unpartitioned_timestamp_id;
+-- ALTER INDEX IF EXISTS idx_logs_application RENAME TO idx_logs_unpartitioned_application;
+-- ALTER INDEX IF EXISTS idx_logs_severity RENAME TO idx_logs_unpartitioned_severity;
+-- ALTER TABLE metadata_fields RENAME TO metadata_fields_unpartitioned;
+-- (run this script)
+-- DO $$
+-- DECLARE
+--     day DATE;
+-- BEGIN
+--     -- Old timestamps are UTC without a time zone
+--     FOR day IN SELECT DISTINCT l.timestamp::date FROM logs_unpartitioned l LOOP
+--         EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF logs FOR VALUES FROM (%L) TO (%L)',
+--                        'logs_p' || to_char(day, 'YYYYMMDD'), day || ' 00:00:00+00', (day + 1) || ' 00:00:00+00');
+--     END LOOP;
+-- END $$;
+-- INSERT INTO logs (id, timestamp, application, message, severity, source, host, metadata)
+-- SELECT l.id, l.timestamp AT TIME ZONE 'UTC', l.application, l.message, l.severity::text::severity_enum, l.source, l.host,
+--        (SELECT jsonb_agg(jsonb_build_object('key', m.key, 'value', m.value)) FROM metadata_fields_unpartitioned m WHERE m.log_id = l.id)
+-- FROM logs_unpartitioned l;
+-- SELECT setval('logs_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM logs));
+-- DROP TABLE metadata_fields_unpartitioned, logs_unpartitioned;
+
+-- Every error template ever seen, keyed by its 64-bit fingerprint (optional, as Hibernate will create it)
+CREATE TABLE IF NOT EXISTS error_templates (
+    fingerprint BIGINT PRIMARY KEY,
+    template TEXT,
+    application VARCHAR(255),
+    first_seen TIMESTAMP WITH TIME ZONE,
+    last_seen TIMESTAMP WITH TIME ZONE,
+    occurrences BIGINT
+);
+CREATE INDEX IF NOT EXISTS idx_error_templates_last_seen ON error_templates(last_seen);
+
+-- Last alert per anomaly type and application, so only one instance alerts per cooldown (optional, as Hibernate will create it)
+CREATE TABLE IF NOT EXISTS anomaly_cooldowns (
+    alert_key VARCHAR(255) PRIMARY KEY,
+    last_alerted TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+-- Saved logs waiting to be published to Kafka, written in the same transaction as the log
+CREATE TABLE IF NOT EXISTS log_outbox (
+    id BIGINT PRIMARY KEY,
+    log_id BIGINT NOT NULL,
+    log_timestamp TIMESTAMP WITH TIME ZONE NOT NULL,
+    shard INTEGER NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
 );
+-- Outbox tables created before log_timestamp was added: fill it in from the logs still waiting
+ALTER TABLE log_outbox ADD COLUMN IF NOT EXISTS log_timestamp TIMESTAMP WITH TIME ZONE;
+UPDATE log_outbox o SET log_timestamp = l.timestamp FROM logs l WHERE l.id = o.log_id AND o.log_timestamp IS NULL;
+DELETE FROM log_outbox WHERE log_timestamp IS NULL;
+ALTER TABLE log_outbox ALTER COLUMN log_timestamp SET NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_log_outbox_shard_id ON log_outbox(shard, id);
 
--- Create the metadata fields table (optional, as Hibernate will create it)
-CREATE TABLE IF NOT EXISTS metadata_fields (
-    id SERIAL PRIMARY KEY,
-    log_id BIGINT REFERENCES logs(id) ON DELETE CASCADE,
-    key VARCHAR(255) NOT NULL,
-    value VARCHAR(255) NOT NULL
+-- One row per outbox shard; a relay owns a shard while it holds the row locked
+CREATE TABLE IF NOT EXISTS log_outbox_shards (
+    shard INTEGER PRIMARY KEY
 );
 
--- Index for faster querying by timestamp
-CREATE INDEX IF NOT EXISTS idx_logs_timestamp ON logs(timestamp);
+-- Per-minute log counts kept after retention removes the raw logs (also created by the application)
+CREATE TABLE IF NOT EXISTS log_rollups (
+    minute TIMESTAMP WITH TIME ZONE NOT NULL,
+    application VARCHAR(255) NOT NULL,
+    severity VARCHAR(16) NOT NULL,
+    host VARCHAR(255) NOT NULL DEFAULT '',
+    count BIGINT NOT NULL,
+    PRIMARY KEY (minute, application, severity, host)
+);
+
+-- Last day rolled up from complete raw data; retention never deletes logs after it
+CREATE TABLE IF NOT EXISTS log_rollup_progress (
+    id INTEGER PRIMARY KEY,
+    rolled_up_through DATE NOT NULL
+);
+
+-- ID sequences used by Hibernate. The increment must match the allocationSize on the
+-- entities so that IDs can be handed out in blocks and inserts can be JDBC-batched.
+CREATE SEQUENCE IF NOT EXISTS logs_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS log_outbox_seq INCREMENT BY 50;
+
+-- On an existing database, move the sequences past the rows created with SERIAL IDs
+SELECT setval('logs_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM logs));
+
+-- Index for faster querying by timestamp (created on every partition). Including id lets the
+-- newest-first listing page by keyset on (timestamp, id) without sorting.
+CREATE INDEX IF NOT EXISTS idx_logs_timestamp_id ON logs(timestamp, id);
 
 -- Index for faster querying by application
 CREATE INDEX IF NOT EXISTS idx_logs_application ON logs(application);
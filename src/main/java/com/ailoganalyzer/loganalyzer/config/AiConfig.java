@@ -8,6 +8,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 public class AiConfig {
 
@@ -17,6 +19,9 @@ public class AiConfig {
     @Value("${ai.openai.model:gpt-3.5-turbo}")
     private String openAiModel;
 
+    @Value("${loganalyzer.ai.call-timeout-ms:30000}")
+    private long callTimeoutMs;
+
     @Bean
     public ChatLanguageModel chatLanguageModel() {
         if (openAiApiKey == null || openAiApiKey.trim().isEmpty()) {
@@ -27,6 +32,7 @@ public class AiConfig {
         return OpenAiChatModel.builder()
                 .apiKey(openAiApiKey)
                 .modelName(openAiModel)
+                .timeout(Duration.ofMillis(callTimeoutMs))
                 .build();
     }
 }
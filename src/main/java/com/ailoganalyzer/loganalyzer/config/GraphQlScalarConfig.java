@@ -0,0 +1,54 @@
+package com.ailoganalyzer.loganalyzer.config;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import graphql.GraphQLContext;
+import graphql.execution.CoercedVariables;
+import graphql.language.Value;
+import graphql.schema.Coercing;
+import graphql.schema.CoercingParseLiteralException;
+import graphql.schema.CoercingParseValueException;
+import graphql.schema.CoercingSerializeException;
+import graphql.schema.GraphQLScalarType;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.graphql.execution.RuntimeWiringConfigurer;
+
+import java.util.Locale;
+
+@Configuration
+public class GraphQlScalarConfig {
+
+    /**
+     * Output-only scalar for JSON that is already encoded. Values are Jackson {@link RawValue}s, which the
+     * WebSocket handler and the HTTP transport copy into the response as they are, without escaping.
+     */
+    public static final GraphQLScalarType RAW_JSON = GraphQLScalarType.newScalar()
+            .name("RawJson")
+            .description("JSON encoded once on the server and embedded as is")
+            .coercing(new Coercing<RawValue, RawValue>() {
+                @Override
+                public RawValue serialize(Object value, GraphQLContext context, Locale locale) {
+                    if (value instanceof RawValue raw) {
+                        return raw;
+                    }
+                    throw new CoercingSerializeException("Expected a RawValue but got " + value.getClass().getName());
+                }
+
+                @Override
+                public RawValue parseValue(Object input, GraphQLContext context, Locale locale) {
+                    throw new CoercingParseValueException("RawJson is output only");
+                }
+
+                @Override
+                public RawValue parseLiteral(Value<?> input, CoercedVariables variables, GraphQLContext context,
+                                             Locale locale) {
+                    throw new CoercingParseLiteralException("RawJson is output only");
+                }
+            })
+            .build();
+
+    @Bean
+    public RuntimeWiringConfigurer scalarWiringConfigurer() {
+        return wiring -> wiring.scalar(RAW_JSON);
+    }
+}
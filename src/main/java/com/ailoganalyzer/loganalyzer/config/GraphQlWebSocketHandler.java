@@ -1,115 +1,354 @@
 package com.ailoganalyzer.loganalyzer.config;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
 import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.graphql.execution.SubscriptionPublisherException;
 import org.springframework.graphql.server.WebGraphQlHandler;
 import org.springframework.graphql.server.WebGraphQlRequest;
 import org.springframework.graphql.server.WebGraphQlResponse;
-import org.springframework.http.HttpCookie;
 import org.springframework.http.HttpHeaders;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
-import reactor.core.publisher.Mono;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
 import java.net.URI;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * GraphQL over WebSocket using the graphql-transport-ws protocol. Any number of operations can run on one
+ * connection; each is identified by the client's id and is cancelled by a complete message or when the
+ * connection closes. Messages are parsed and written with the Jackson streaming API. Sends go through a
+ * bounded per-session buffer, and subscriptions only request the next result while that buffer has room,
+ * so a slow client applies backpressure to its own subscriptions instead of growing the heap.
+ */
 @Slf4j
-public class GraphQlWebSocketHandler extends TextWebSocketHandler {
+public class GraphQlWebSocketHandler extends TextWebSocketHandler implements SubProtocolCapable {
+
+    private static final String SUB_PROTOCOL = "graphql-transport-ws";
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private static final TextMessage CONNECTION_ACK = new TextMessage("{\"type\":\"connection_ack\"}");
+    private static final TextMessage PING = new TextMessage("{\"type\":\"ping\"}");
+    private static final TextMessage PONG = new TextMessage("{\"type\":\"pong\"}");
+
+    private static final CloseStatus INVALID_MESSAGE = new CloseStatus(4400, "Invalid message");
+    private static final CloseStatus UNAUTHORIZED = new CloseStatus(4401, "Unauthorized");
+    private static final CloseStatus INIT_TIMEOUT = new CloseStatus(4408, "Connection initialisation timeout");
+    private static final CloseStatus TOO_MANY_INIT_REQUESTS = new CloseStatus(4429, "Too many initialisation requests");
+
+    // How long to wait before asking again for results while the send buffer is full
+    private static final long RESUME_CHECK_MS = 50;
+
+    /**
+     * Settings for the handler, see WebSocketConfig.
+     */
+    public record Settings(long connectionInitTimeoutMs, long keepAliveMs, int sendTimeLimitMs,
+                           int sendBufferSizeLimit, int maxOperationsPerSession) {
+    }
+
+    private static final class SessionState {
+        private final WebSocketSession session;
+        private final Map<String, Disposable> operations = new ConcurrentHashMap<>();
+        private volatile boolean initialized;
+        private volatile Disposable initTimeout;
+        private volatile Disposable keepAlive;
+
+        private SessionState(WebSocketSession session) {
+            this.session = session;
+        }
+    }
 
     private final WebGraphQlHandler graphQlHandler;
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+    private final Settings settings;
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+    private final Scheduler timerScheduler = Schedulers.newSingle("graphql-ws-timer");
 
-    public GraphQlWebSocketHandler(WebGraphQlHandler graphQlHandler) {
+    public GraphQlWebSocketHandler(WebGraphQlHandler graphQlHandler, ObjectMapper objectMapper, Settings settings) {
         this.graphQlHandler = graphQlHandler;
+        this.objectMapper = objectMapper;
+        this.settings = settings;
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(SUB_PROTOCOL);
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
-        sessions.put(session.getId(), session);
-        log.info("WebSocket connection established: {}", session.getId());
+        SessionState state = new SessionState(new ConcurrentWebSocketSessionDecorator(session,
+                settings.sendTimeLimitMs(), settings.sendBufferSizeLimit(),
+                ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE));
+        sessions.put(session.getId(), state);
+        state.initTimeout = timerScheduler.schedule(() -> {
+            if (!state.initialized) {
+                close(state, INIT_TIMEOUT);
+            }
+        }, settings.connectionInitTimeoutMs(), TimeUnit.MILLISECONDS);
+        log.debug("WebSocket connection established: {}", session.getId());
     }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) {
-        try {
-            String payload = message.getPayload();
-            // Handle GraphQL over WebSocket protocol messages
-            if (payload.contains("connection_init")) {
-                session.sendMessage(new TextMessage("{\"type\":\"connection_ack\"}"));
+        SessionState state = sessions.get(session.getId());
+        if (state == null) {
+            return;
+        }
+        String type = null;
+        String id = null;
+        Map<String, Object> payload = null;
+        try (JsonParser parser = objectMapper.getFactory().createParser(message.asBytes())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                close(state, INVALID_MESSAGE);
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("payload".equals(field) && value == JsonToken.START_OBJECT) {
+                    payload = objectMapper.readValue(parser, MAP_TYPE);
+                } else if ("type".equals(field) && value == JsonToken.VALUE_STRING) {
+                    type = parser.getText();
+                } else if ("id".equals(field) && value == JsonToken.VALUE_STRING) {
+                    id = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            close(state, INVALID_MESSAGE);
+            return;
+        }
+        if (type == null) {
+            close(state, INVALID_MESSAGE);
+            return;
+        }
+
+        switch (type) {
+            case "connection_init" -> {
+                if (state.initialized) {
+                    close(state, TOO_MANY_INIT_REQUESTS);
+                    return;
+                }
+                state.initialized = true;
+                state.initTimeout.dispose();
+                send(state, CONNECTION_ACK);
+                if (settings.keepAliveMs() > 0) {
+                    state.keepAlive = timerScheduler.schedulePeriodically(() -> send(state, PING),
+                            settings.keepAliveMs(), settings.keepAliveMs(), TimeUnit.MILLISECONDS);
+                }
+            }
+            case "ping" -> send(state, PONG);
+            case "pong" -> {
+                // Reply to our keep-alive ping; nothing to do
+            }
+            case "subscribe" -> {
+                if (!state.initialized) {
+                    close(state, UNAUTHORIZED);
+                } else if (id == null || payload == null || !(payload.get("query") instanceof String)) {
+                    close(state, INVALID_MESSAGE);
+                } else {
+                    subscribe(state, id, payload);
+                }
+            }
+            case "complete" -> {
+                if (id != null) {
+                    Disposable operation = state.operations.remove(id);
+                    if (operation != null) {
+                        operation.dispose();
+                    }
+                }
+            }
+            default -> close(state, INVALID_MESSAGE);
+        }
+    }
+
+    private void subscribe(SessionState state, String id, Map<String, Object> payload) {
+        if (state.operations.size() >= settings.maxOperationsPerSession()) {
+            sendError(state, id, List.of(Map.of("message",
+                    "Too many operations on this connection; the limit is " + settings.maxOperationsPerSession())));
+            return;
+        }
+        OperationSubscriber subscriber = new OperationSubscriber(state, id);
+        if (state.operations.putIfAbsent(id, subscriber) != null) {
+            close(state, new CloseStatus(4409, "Subscriber for " + id + " already exists"));
+            return;
+        }
+
+        WebGraphQlRequest request = new WebGraphQlRequest(
+                state.session.getUri() != null ? state.session.getUri() : URI.create("/graphql-ws"),
+                state.session.getHandshakeHeaders() != null ? state.session.getHandshakeHeaders() : new HttpHeaders(),
+                null, state.session.getAttributes(), payload, id, Locale.getDefault());
+
+        graphQlHandler.handleRequest(request)
+                .flatMapMany(this::results)
+                .subscribe(subscriber);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Flux<Map<String, Object>> results(WebGraphQlResponse response) {
+        if (!response.isValid()) {
+            // Parse and validation errors end the operation with an error message
+            return Flux.error(new OperationErrors((List<Map<String, Object>>) response.toMap().get("errors")));
+        }
+        if (response.getData() instanceof Publisher) {
+            // A subscription: one result per event
+            return Flux.from((Publisher<ExecutionResult>) response.getData()).map(ExecutionResult::toSpecification);
+        }
+        return Flux.just(response.toMap());
+    }
+
+    /**
+     * Sends the results of one operation. Results are requested one at a time, and only while the session's
+     * send buffer has room.
+     */
+    private final class OperationSubscriber extends BaseSubscriber<Map<String, Object>> {
+
+        private final SessionState state;
+        private final String id;
+
+        private OperationSubscriber(SessionState state, String id) {
+            this.state = state;
+            this.id = id;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(1);
+        }
+
+        @Override
+        protected void hookOnNext(Map<String, Object> result) {
+            send(state, encode("next", id, result));
+            requestWhenWritable();
+        }
+
+        private void requestWhenWritable() {
+            if (isDisposed()) {
                 return;
             }
+            ConcurrentWebSocketSessionDecorator session = (ConcurrentWebSocketSessionDecorator) state.session;
+            if (session.getBufferSize() < settings.sendBufferSizeLimit() / 2) {
+                request(1);
+            } else {
+                timerScheduler.schedule(this::requestWhenWritable, RESUME_CHECK_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            if (state.operations.remove(id, this)) {
+                send(state, encode("complete", id, null));
+            }
+        }
+
+        @Override
+        protected void hookOnError(Throwable error) {
+            if (!state.operations.remove(id, this)) {
+                return;
+            }
+            if (error instanceof OperationErrors operationErrors) {
+                sendError(state, id, operationErrors.errors);
+            } else if (error instanceof SubscriptionPublisherException publisherException) {
+                sendError(state, id, publisherException.getErrors().stream().map(GraphQLError::toSpecification).toList());
+            } else {
+                log.warn("GraphQL operation {} failed: {}", id, error.getMessage());
+                sendError(state, id, List.of(Map.of("message", "Operation failed")));
+            }
+        }
+    }
+
+    private static final class OperationErrors extends RuntimeException {
+        private final List<Map<String, Object>> errors;
+
+        private OperationErrors(List<Map<String, Object>> errors) {
+            super("Invalid GraphQL request", null, false, false);
+            this.errors = errors;
+        }
+    }
+
+    private void sendError(SessionState state, String id, List<Map<String, Object>> errors) {
+        send(state, encode("error", id, errors));
+    }
 
-            // Create a proper WebGraphQlRequest
-            URI uri = URI.create("/graphql-ws");
-            HttpHeaders headers = new HttpHeaders();
-            MultiValueMap<String, HttpCookie> cookies = new LinkedMultiValueMap<>();
-            Map<String, Object> variables = new HashMap<>();
-            Map<String, Object> extensions = new HashMap<>();
-            String query = extractQuery(payload);
-            
-            WebGraphQlRequest graphQlRequest = new WebGraphQlRequest(
-                uri,
-                headers,
-                cookies,
-                variables,
-                extensions,
-                query,
-                Locale.getDefault()
-            );
-
-            graphQlHandler.handleRequest(graphQlRequest)
-                    .flatMap(response -> {
-                        try {
-                            String jsonResponse = serializeResponse(response);
-                            session.sendMessage(new TextMessage(jsonResponse));
-                            return Mono.empty();
-                        } catch (IOException e) {
-                            log.error("Error sending WebSocket message", e);
-                            return Mono.error(e);
-                        }
-                    })
-                    .subscribe();
-        } catch (Exception e) {
-            log.error("Error handling WebSocket message", e);
-        }
-    }
-
-    private String extractQuery(String payload) {
-        // Simple extraction of the query from the payload
-        // In a real implementation, you would use a proper JSON parser
-        if (payload.contains("\"query\"")) {
-            int start = payload.indexOf("\"query\"") + 9;
-            while (start < payload.length() && payload.charAt(start) != '"') start++;
-            start++; // Move past the opening quote
-            
-            int end = start;
-            while (end < payload.length() && payload.charAt(end) != '"') end++;
-            
-            if (end > start) {
-                return payload.substring(start, end);
+    TextMessage encode(String type, String id, Object payload) {
+        ByteArrayBuilder buffer = new ByteArrayBuilder(256);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("id", id);
+            generator.writeStringField("type", type);
+            if (payload != null) {
+                generator.writeFieldName("payload");
+                objectMapper.writeValue(generator, payload);
             }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize " + type + " message", e);
         }
-        return "";
+        return new TextMessage(buffer.toByteArray());
     }
 
-    private String serializeResponse(WebGraphQlResponse response) {
-        // Convert the response to a JSON string
-        // This is a placeholder; use a proper JSON library like Jackson or Gson
-        return response.toString();
+    private void send(SessionState state, TextMessage message) {
+        if (!state.session.isOpen()) {
+            return;
+        }
+        try {
+            state.session.sendMessage(message);
+        } catch (IOException | IllegalStateException e) {
+            // The decorator has closed the session if its buffer overflowed or a send took too long
+            log.debug("Could not send to WebSocket {}: {}", state.session.getId(), e.getMessage());
+        }
+    }
+
+    private void close(SessionState state, CloseStatus status) {
+        try {
+            state.session.close(status);
+        } catch (IOException e) {
+            log.debug("Could not close WebSocket {}: {}", state.session.getId(), e.getMessage());
+        }
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        sessions.remove(session.getId());
-        log.info("WebSocket connection closed: {}", session.getId());
+        SessionState state = sessions.remove(session.getId());
+        if (state == null) {
+            return;
+        }
+        state.initTimeout.dispose();
+        if (state.keepAlive != null) {
+            state.keepAlive.dispose();
+        }
+        state.operations.values().forEach(Disposable::dispose);
+        state.operations.clear();
+        log.debug("WebSocket connection closed: {} ({})", session.getId(), status);
+    }
+
+    public void shutdown() {
+        timerScheduler.dispose();
     }
-} 
\ No newline at end of file
+}
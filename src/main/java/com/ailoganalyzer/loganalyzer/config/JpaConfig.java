@@ -1,5 +1,8 @@
 package com.ailoganalyzer.loganalyzer.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
@@ -8,5 +11,18 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
     basePackages = "com.ailoganalyzer.loganalyzer.repository.jpa"
 )
 public class JpaConfig {
-    // Configuration is handled by Spring Boot auto-configuration
-} 
\ No newline at end of file
+
+    @Value("${loganalyzer.ingest.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+
+    // Everything else is handled by Spring Boot auto-configuration. Batching only
+    // kicks in because Log and OutboxEvent use sequence-allocated IDs.
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer() {
+        return properties -> {
+            properties.put("hibernate.jdbc.batch_size", jdbcBatchSize);
+            properties.put("hibernate.order_inserts", true);
+            properties.put("hibernate.order_updates", true);
+        };
+    }
+}
@@ -1,6 +1,8 @@
 package com.ailoganalyzer.loganalyzer.config;
 
 import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.service.IndexingUnavailableException;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
@@ -11,13 +13,19 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 @Configuration
+@Slf4j
 public class KafkaConfig {
 
     @Value("${spring.kafka.bootstrap-servers}")
@@ -29,9 +37,44 @@ public class KafkaConfig {
     @Value("${spring.kafka.topic.name}")
     private String topicName;
 
+    // Upper bound on consumer parallelism across all instances in the group
+    @Value("${spring.kafka.topic.partitions:6}")
+    private int topicPartitions;
+
+    @Value("${spring.kafka.topic.replication-factor:1}")
+    private short topicReplicationFactor;
+
+    // Listener threads per instance; threads beyond the partition count stay idle
+    @Value("${spring.kafka.listener.concurrency:3}")
+    private int listenerConcurrency;
+
+    // Upper bound on the number of logs handed to one bulk request
+    @Value("${loganalyzer.indexing.batch-size:500}")
+    private int indexingBatchSize;
+
+    // How long the broker may hold a fetch to fill a batch before returning what it has
+    @Value("${loganalyzer.indexing.flush-interval-ms:500}")
+    private int indexingFlushIntervalMs;
+
+    @Value("${loganalyzer.indexing.fetch-min-bytes:65536}")
+    private int indexingFetchMinBytes;
+
+    @Value("${loganalyzer.indexing.retry-backoff-ms:5000}")
+    private long indexingRetryBackoffMs;
+
+    @Value("${loganalyzer.live.concurrency:1}")
+    private int liveConcurrency;
+
+    // Kept short: live subscribers care about latency, not batch size
+    @Value("${loganalyzer.live.fetch-max-wait-ms:100}")
+    private int liveFetchMaxWaitMs;
+
+    // Each instance reads the whole topic in a consumer group of its own
+    private final String liveGroupId = "loganalyzer-live-" + UUID.randomUUID();
+
     @Bean
     public NewTopic logTopic() {
-        return new NewTopic(topicName, 1, (short) 1);
+        return new NewTopic(topicName, topicPartitions, topicReplicationFactor);
     }
 
     // Producer Configuration
@@ -41,6 +84,9 @@ public class KafkaConfig {
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        // The outbox relay deletes events once sends are acknowledged; retries must neither reorder nor duplicate
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
@@ -58,9 +104,13 @@ public class KafkaConfig {
         configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
         configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "com.ailoganalyzer.loganalyzer.model");
-        return new DefaultKafkaConsumerFactory<>(configProps, 
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, indexingBatchSize);
+        configProps.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, indexingFetchMinBytes);
+        configProps.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, indexingFlushIntervalMs);
+        return new DefaultKafkaConsumerFactory<>(configProps,
             new StringDeserializer(),
-            new JsonDeserializer<>(Log.class));
+            logDeserializer());
     }
 
     @Bean
@@ -68,6 +118,57 @@ public class KafkaConfig {
         ConcurrentKafkaListenerContainerFactory<String, Log> factory = 
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(listenerConcurrency);
+        // Each poll is delivered as one list and indexed with a single bulk request
+        factory.setBatchListener(true);
+        // Offsets are committed by the listener once the bulk response is back
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // A bulk request Elasticsearch could not take redelivers the whole batch until it is accepted.
+        // Any other failure is a problem with the records or the code, which retrying would not fix: the
+        // records are logged and skipped, only the failed one when the listener names it.
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
+                (record, e) -> log.error("Skipping log record {}-{}@{} after a listener failure: {}",
+                        record.topic(), record.partition(), record.offset(), e.getMessage(), e),
+                new FixedBackOff(indexingRetryBackoffMs, FixedBackOff.UNLIMITED_ATTEMPTS));
+        errorHandler.setClassifications(Map.of(IndexingUnavailableException.class, true), false);
+        factory.setCommonErrorHandler(errorHandler);
+        return factory;
+    }
+
+    // A record that is not a valid log reaches the listener with a null value instead of failing every poll
+    private ErrorHandlingDeserializer<Log> logDeserializer() {
+        return new ErrorHandlingDeserializer<>(new JsonDeserializer<>(Log.class));
+    }
+
+    /**
+     * Consumers for the live stream. Unlike the indexing group, every instance gets every log: the group ID
+     * is unique per instance start, reading begins at the latest offset, and offsets are never committed.
+     */
+    @Bean
+    public ConsumerFactory<String, Log> liveConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.GROUP_ID_CONFIG, liveGroupId);
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, indexingBatchSize);
+        configProps.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, liveFetchMaxWaitMs);
+        return new DefaultKafkaConsumerFactory<>(configProps,
+            new StringDeserializer(),
+            logDeserializer());
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Log> liveListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Log> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(liveConsumerFactory());
+        factory.setConcurrency(liveConcurrency);
+        factory.setBatchListener(true);
+        // Never acknowledged, so nothing is committed for the throwaway group
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // Live delivery is best effort: a failing batch is logged and skipped, not retried
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(0, 0)));
         return factory;
     }
-} 
\ No newline at end of file
+}
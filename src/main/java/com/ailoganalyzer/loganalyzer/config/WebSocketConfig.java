@@ -1,11 +1,12 @@
 package com.ailoganalyzer.loganalyzer.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.graphql.server.WebGraphQlHandler;
 import org.springframework.graphql.server.WebSocketGraphQlInterceptor;
 import org.springframework.graphql.server.WebSocketGraphQlRequest;
-import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
@@ -15,9 +16,28 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final WebGraphQlHandler webGraphQlHandler;
+    private final ObjectMapper objectMapper;
 
-    public WebSocketConfig(WebGraphQlHandler webGraphQlHandler) {
+    @Value("${loganalyzer.graphql-ws.connection-init-timeout-ms:10000}")
+    private long connectionInitTimeoutMs;
+
+    // Interval of server pings; 0 disables them
+    @Value("${loganalyzer.graphql-ws.keep-alive-ms:15000}")
+    private long keepAliveMs;
+
+    // A session whose send is stuck this long, or whose buffer exceeds the limit, is closed
+    @Value("${loganalyzer.graphql-ws.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${loganalyzer.graphql-ws.send-buffer-size-bytes:1048576}")
+    private int sendBufferSizeBytes;
+
+    @Value("${loganalyzer.graphql-ws.max-operations-per-session:100}")
+    private int maxOperationsPerSession;
+
+    public WebSocketConfig(WebGraphQlHandler webGraphQlHandler, ObjectMapper objectMapper) {
         this.webGraphQlHandler = webGraphQlHandler;
+        this.objectMapper = objectMapper;
     }
 
     @Override
@@ -26,9 +46,10 @@ public class WebSocketConfig implements WebSocketConfigurer {
                 .setAllowedOrigins("*");
     }
 
-    @Bean
-    public WebSocketHandler customGraphQlWebSocketHandler() {
-        return new GraphQlWebSocketHandler(webGraphQlHandler);
+    @Bean(destroyMethod = "shutdown")
+    public GraphQlWebSocketHandler customGraphQlWebSocketHandler() {
+        return new GraphQlWebSocketHandler(webGraphQlHandler, objectMapper, new GraphQlWebSocketHandler.Settings(
+                connectionInitTimeoutMs, keepAliveMs, sendTimeLimitMs, sendBufferSizeBytes, maxOperationsPerSession));
     }
 }
 
@@ -0,0 +1,69 @@
+package com.ailoganalyzer.loganalyzer.controller;
+
+import com.ailoganalyzer.loganalyzer.service.LogIndexTemplateManager;
+import com.ailoganalyzer.loganalyzer.service.retention.RetentionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/indices")
+@Tag(name = "Index administration", description = "Endpoints for managing the log indices")
+public class IndexAdminController {
+
+    private final LogIndexTemplateManager templateManager;
+    private final RetentionService retentionService;
+
+    @Autowired
+    public IndexAdminController(LogIndexTemplateManager templateManager, RetentionService retentionService) {
+        this.templateManager = templateManager;
+        this.retentionService = retentionService;
+    }
+
+    @Operation(summary = "Bulk-load mode status", description = "Returns whether bulk-load mode is on")
+    @GetMapping("/bulk-load")
+    public ResponseEntity<Map<String, Boolean>> getBulkLoad() {
+        return ResponseEntity.ok(Map.of("active", templateManager.isBulkLoading()));
+    }
+
+    @Operation(summary = "Start bulk-load mode",
+            description = "Disables refresh and sets replicas to 0 on all log indices until bulk-load mode is stopped. " +
+                    "Logs indexed meanwhile are not searchable and not replicated.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Bulk-load mode started")
+    })
+    @PostMapping("/bulk-load")
+    public ResponseEntity<Map<String, Boolean>> startBulkLoad() {
+        templateManager.startBulkLoad();
+        return ResponseEntity.ok(Map.of("active", true));
+    }
+
+    @Operation(summary = "Stop bulk-load mode",
+            description = "Restores the configured refresh interval and replicas on all log indices and refreshes them")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Bulk-load mode stopped")
+    })
+    @DeleteMapping("/bulk-load")
+    public ResponseEntity<Map<String, Boolean>> finishBulkLoad() {
+        templateManager.finishBulkLoad();
+        return ResponseEntity.ok(Map.of("active", false));
+    }
+
+    @Operation(summary = "Run retention now",
+            description = "Rolls up completed days and removes logs past their retention, as the nightly job does")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Retention run started")
+    })
+    @PostMapping("/retention")
+    public ResponseEntity<Void> runRetention() {
+        CompletableFuture.runAsync(retentionService::run);
+        return ResponseEntity.accepted().build();
+    }
+}
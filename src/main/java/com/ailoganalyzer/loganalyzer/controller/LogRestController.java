@@ -1,8 +1,13 @@
 package com.ailoganalyzer.loganalyzer.controller;
 
+import com.ailoganalyzer.loganalyzer.dto.LogSearchResult;
 import com.ailoganalyzer.loganalyzer.model.Log;
 import com.ailoganalyzer.loganalyzer.model.Severity;
 import com.ailoganalyzer.loganalyzer.service.LogService;
+import com.ailoganalyzer.loganalyzer.service.ingest.IngestionOverloadedException;
+import com.ailoganalyzer.loganalyzer.service.ingest.IngestionPipeline;
+import com.ailoganalyzer.loganalyzer.service.query.LogQuery;
+import com.ailoganalyzer.loganalyzer.service.query.LogQueryParser;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -11,14 +16,22 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -27,10 +40,15 @@ import java.util.stream.Collectors;
 public class LogRestController {
 
     private final LogService logService;
+    private final IngestionPipeline ingestionPipeline;
+
+    @Value("${loganalyzer.ingest.max-batch-size:10000}")
+    private int maxBatchSize;
 
     @Autowired
-    public LogRestController(LogService logService) {
+    public LogRestController(LogService logService, IngestionPipeline ingestionPipeline) {
         this.logService = logService;
+        this.ingestionPipeline = ingestionPipeline;
     }
 
     @Operation(summary = "Get a log by ID", description = "Returns a log as per the ID")
@@ -50,7 +68,8 @@ public class LogRestController {
 
     @Operation(summary = "Get all logs", description = "Returns a paginated list of logs with optional filtering")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved logs")
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved logs"),
+            @ApiResponse(responseCode = "400", description = "Invalid query, time or cursor")
     })
     @GetMapping
     public ResponseEntity<List<Log>> getLogs(
@@ -61,12 +80,19 @@ public class LogRestController {
             @Parameter(description = "Filter by start time (ISO format)") @RequestParam(required = false) Optional<String> startTime,
             @Parameter(description = "Filter by end time (ISO format)") @RequestParam(required = false) Optional<String> endTime,
             @Parameter(description = "Filter by metadata key") @RequestParam(required = false) Optional<String> metadataKey,
-            @Parameter(description = "Filter by metadata value") @RequestParam(required = false) Optional<String> metadataValue) {
+            @Parameter(description = "Filter by metadata value") @RequestParam(required = false) Optional<String> metadataValue,
+            @Parameter(description = "Cursor from the previous X-Next-Cursor header; empty to start cursor paging") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Query, e.g. app:checkout severity:ERROR,CRITICAL host:web-* \"timeout\"") @RequestParam(required = false) String q,
+            @Parameter(description = "Count exactly instead of estimating when no filter is given") @RequestParam(defaultValue = "false") boolean exactCount) {
 
-        // If no filters provided, use findAll
-        if (applications.isEmpty() && severities.isEmpty() && startTime.isEmpty() && 
+        // If no filters provided, list from PostgreSQL by keyset
+        if (q == null && applications.isEmpty() && severities.isEmpty() && startTime.isEmpty() &&
             endTime.isEmpty() && metadataKey.isEmpty() && metadataValue.isEmpty()) {
-            return ResponseEntity.ok(logService.findAll(page, size).getContent());
+            try {
+                return withPagingHeaders(logService.listAll(page, size, cursor, exactCount));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
         }
         
         // Process filters if any are provided
@@ -98,30 +124,85 @@ public class LogRestController {
             metadataFilter.put("key", metadataKey.get());
             metadataFilter.put("value", metadataValue.get());
             filterParams.put("metadata", metadataFilter);
-            
-            return ResponseEntity.ok(logService.findByMetadata(metadataKey.get(), metadataValue.get(), page, size));
         }
         
-        // Use search method for other filters
-        List<Log> logs = logService.search(filterParams, page, size);
-        return ResponseEntity.ok(logs);
+        // Use search method for filters and cursor paging
+        LogSearchResult result;
+        try {
+            LogQuery logQuery = LogQueryParser.parse(q).and(LogQuery.fromFilter(filterParams));
+            result = logService.search(logQuery, page, size, cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return withPagingHeaders(result);
+    }
+
+    private ResponseEntity<List<Log>> withPagingHeaders(LogSearchResult result) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(result.getTotalElements()));
+        if (result.getNextCursor() != null) {
+            response.header("X-Next-Cursor", result.getNextCursor());
+        }
+        return response.body(result.getContent());
     }
 
     @Operation(summary = "Create a new log", description = "Creates a new log entry")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Log created successfully"),
-            @ApiResponse(responseCode = "400", description = "Invalid input")
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "429", description = "Ingestion queue is full; retry after the Retry-After delay"),
+            @ApiResponse(responseCode = "503", description = "Database unavailable; retry later")
     })
     @PostMapping
-    public ResponseEntity<Log> createLog(@RequestBody Log log) {
+    public CompletableFuture<ResponseEntity<Log>> createLog(@RequestBody Log log) {
+        // Completes on an ingestion writer thread; the request thread is released right after queueing
+        return ingestionPipeline.submit(log)
+                .thenApply(savedLog -> new ResponseEntity<>(savedLog, HttpStatus.CREATED))
+                .exceptionally(e -> new ResponseEntity<>(statusFor(e)));
+    }
+
+    @Operation(summary = "Create logs in bulk", description = "Persists a batch of log entries in a single transaction")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Logs created successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input or batch too large"),
+            @ApiResponse(responseCode = "429", description = "Ingestion queue is full; retry after the Retry-After delay"),
+            @ApiResponse(responseCode = "503", description = "Database unavailable; retry later")
+    })
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<List<Log>>> createLogs(@RequestBody List<Log> logs) {
+        if (logs.isEmpty() || logs.size() > maxBatchSize) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
         try {
-            Log savedLog = logService.saveLog(log);
-            return new ResponseEntity<>(savedLog, HttpStatus.CREATED);
-        } catch (Exception e) {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            return ingestionPipeline.submitAll(logs)
+                    .thenApply(savedLogs -> new ResponseEntity<>(savedLogs, HttpStatus.CREATED))
+                    .exceptionally(e -> new ResponseEntity<>(statusFor(e)));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
         }
     }
 
+    // Only logs the database rejects are the client's fault; an unreachable database is worth a retry
+    private static HttpStatus statusFor(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof IllegalArgumentException || cause instanceof DataIntegrityViolationException
+                || cause instanceof jakarta.validation.ConstraintViolationException) {
+            return HttpStatus.BAD_REQUEST;
+        }
+        if (cause instanceof DataAccessResourceFailureException || cause instanceof TransientDataAccessException
+                || cause instanceof CannotCreateTransactionException) {
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    @ExceptionHandler(IngestionOverloadedException.class)
+    public ResponseEntity<Map<String, String>> handleIngestionOverloaded(IngestionOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
+
     @Operation(summary = "Get log metadata", description = "Returns logs with specific metadata")
     @GetMapping("/metadata")
     public ResponseEntity<List<Log>> getLogsByMetadata(
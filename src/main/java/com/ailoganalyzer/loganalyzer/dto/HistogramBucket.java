@@ -0,0 +1,15 @@
+package com.ailoganalyzer.loganalyzer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class HistogramBucket {
+    private Instant timestamp; // Start of the bucket
+    private long count;
+    private List<TermCount> severities; // Count per severity within the bucket
+}
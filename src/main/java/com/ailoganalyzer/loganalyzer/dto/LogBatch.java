@@ -0,0 +1,47 @@
+package com.ailoganalyzer.loganalyzer.dto;
+
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.util.RawValue;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Logs delivered together by a batched subscription. One instance is shared by every subscriber of the
+ * same stream. The payload is the logs encoded as a JSON array once per batch; it is a RawJson value, so
+ * every subscriber's message embeds the same UTF-8 bytes instead of encoding the logs again. The logs
+ * field, by contrast, is resolved and encoded for each subscriber.
+ */
+public class LogBatch {
+
+    @Getter
+    private final List<Log> logs;
+
+    private final Function<List<Log>, String> serializer;
+    private volatile RawValue payload;
+
+    public LogBatch(List<Log> logs, Function<List<Log>, String> serializer) {
+        this.logs = logs;
+        this.serializer = serializer;
+    }
+
+    public int getCount() {
+        return logs.size();
+    }
+
+    public RawValue getPayload() {
+        RawValue result = payload;
+        if (result == null) {
+            synchronized (this) {
+                result = payload;
+                if (result == null) {
+                    // SerializedString keeps its UTF-8 bytes, so writing it again is a copy
+                    payload = result = new RawValue(new SerializedString(serializer.apply(logs)));
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,13 @@
+package com.ailoganalyzer.loganalyzer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class LogHistogram {
+    private String interval; // The requested interval, or the one Elasticsearch picked
+    private List<HistogramBucket> buckets;
+}
@@ -0,0 +1,15 @@
+package com.ailoganalyzer.loganalyzer.dto;
+
+import com.ailoganalyzer.loganalyzer.model.Log;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class LogSearchResult {
+    private List<Log> content;
+    private long totalElements; // Exact up to loganalyzer.search.track-total-hits-up-to, a lower bound above it
+    private String nextCursor; // Null when not paging by cursor or when this is the last page
+}
@@ -0,0 +1,17 @@
+package com.ailoganalyzer.loganalyzer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class LogStats {
+    private Instant from;
+    private Instant to;
+    private String interval; // Bucket size, e.g. "5m"; chosen from the range unless requested
+    private boolean downsampled; // True when points were dropped to stay within maxPoints
+    private List<LogStatsSeries> series;
+}
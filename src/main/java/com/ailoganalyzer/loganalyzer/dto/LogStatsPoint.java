@@ -0,0 +1,13 @@
+package com.ailoganalyzer.loganalyzer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class LogStatsPoint {
+    private Instant timestamp; // Start of the bucket
+    private long count;
+}
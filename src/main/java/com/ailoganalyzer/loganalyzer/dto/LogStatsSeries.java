@@ -0,0 +1,17 @@
+package com.ailoganalyzer.loganalyzer.dto;
+
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class LogStatsSeries {
+    private String application; // Null unless grouped by application
+    private Severity severity; // Null unless grouped by severity
+    private String host; // Null unless grouped by host; "" for logs without a host
+    private long total; // Sum over all buckets, including those dropped by downsampling
+    private List<LogStatsPoint> points;
+}
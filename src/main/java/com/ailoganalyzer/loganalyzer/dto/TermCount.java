@@ -0,0 +1,11 @@
+package com.ailoganalyzer.loganalyzer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TermCount {
+    private String value;
+    private long count;
+}
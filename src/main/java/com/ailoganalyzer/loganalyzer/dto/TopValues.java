@@ -0,0 +1,14 @@
+package com.ailoganalyzer.loganalyzer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class TopValues {
+    private String field;
+    private List<TermCount> values; // Most frequent first
+    private long otherCount; // Logs with a value not in the list
+}
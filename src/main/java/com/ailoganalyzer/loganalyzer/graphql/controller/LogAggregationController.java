@@ -0,0 +1,48 @@
+package com.ailoganalyzer.loganalyzer.graphql.controller;
+
+import com.ailoganalyzer.loganalyzer.dto.LogHistogram;
+import com.ailoganalyzer.loganalyzer.dto.TopValues;
+import com.ailoganalyzer.loganalyzer.service.LogAggregationService;
+import com.ailoganalyzer.loganalyzer.service.LogAggregationService.LogField;
+import com.ailoganalyzer.loganalyzer.service.query.LogQuery;
+import com.ailoganalyzer.loganalyzer.service.query.LogQueryParser;
+import lombok.RequiredArgsConstructor;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.List;
+import java.util.Map;
+
+@Controller
+@RequiredArgsConstructor
+public class LogAggregationController {
+
+    private static final List<LogField> DEFAULT_FACETS =
+            List.of(LogField.APPLICATION, LogField.SEVERITY, LogField.HOST, LogField.SOURCE);
+
+    private final LogAggregationService logAggregationService;
+
+    @QueryMapping
+    public LogHistogram logHistogram(@Argument Map<String, Object> filter, @Argument String query,
+                                     @Argument String interval) {
+        return logAggregationService.histogram(toQuery(filter, query), interval);
+    }
+
+    @QueryMapping
+    public TopValues topValues(@Argument LogField field, @Argument Map<String, Object> filter,
+                               @Argument String query, @Argument int size) {
+        return logAggregationService.topValues(field, toQuery(filter, query), size);
+    }
+
+    @QueryMapping
+    public List<TopValues> facets(@Argument Map<String, Object> filter, @Argument String query,
+                                  @Argument List<LogField> fields, @Argument int size) {
+        return logAggregationService.facets(fields != null && !fields.isEmpty() ? fields : DEFAULT_FACETS,
+                toQuery(filter, query), size);
+    }
+
+    private static LogQuery toQuery(Map<String, Object> filter, String query) {
+        return LogQueryParser.parse(query).and(LogQuery.fromFilter(filter));
+    }
+}
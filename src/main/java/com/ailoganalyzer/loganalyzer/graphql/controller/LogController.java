@@ -1,11 +1,13 @@
 package com.ailoganalyzer.loganalyzer.graphql.controller;
 
+import com.ailoganalyzer.loganalyzer.dto.LogSearchResult;
 import com.ailoganalyzer.loganalyzer.model.Log;
 import com.ailoganalyzer.loganalyzer.model.Severity;
 import com.ailoganalyzer.loganalyzer.service.LogService;
 import com.ailoganalyzer.loganalyzer.service.ai.AiAssistant;
+import com.ailoganalyzer.loganalyzer.service.query.LogQuery;
+import com.ailoganalyzer.loganalyzer.service.query.LogQueryParser;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.stereotype.Controller;
@@ -28,39 +30,22 @@ public class LogController {
     }
 
     @QueryMapping
-    public Map<String, Object> logs(@Argument Map<String, Object> filter, @Argument Map<String, Object> page) {
+    public Map<String, Object> logs(@Argument Map<String, Object> filter, @Argument Map<String, Object> page,
+                                    @Argument String query) {
         int pageNumber = page != null ? (int) page.getOrDefault("page", 0) : 0;
         int pageSize = page != null ? (int) page.getOrDefault("size", 20) : 20;
+        String cursor = page != null ? (String) page.get("cursor") : null;
+        LogQuery logQuery = LogQueryParser.parse(query).and(LogQuery.fromFilter(filter));
 
-        List<Log> logs;
-        long totalElements;
+        boolean exactCount = page != null && Boolean.TRUE.equals(page.get("exactCount"));
 
-        if (filter != null && !filter.isEmpty()) {
-            // Check if we're filtering by metadata
-            if (filter.containsKey("metadata")) {
-                Map<String, String> metadataFilter = (Map<String, String>) filter.get("metadata");
-                if (metadataFilter != null && metadataFilter.containsKey("key")
-                        && metadataFilter.containsKey("value")) {
-                    String key = metadataFilter.get("key");
-                    String value = metadataFilter.get("value");
-                    logs = logService.findByMetadata(key, value, pageNumber, pageSize);
-                    totalElements = logs.size(); // simplified count
-                } else {
-                    // Use Elasticsearch for filtered queries
-                    logs = logService.search(filter, pageNumber, pageSize);
-                    totalElements = logs.size(); // simplified count
-                }
-            } else {
-                // Use Elasticsearch for filtered queries
-                logs = logService.search(filter, pageNumber, pageSize);
-                totalElements = logs.size(); // simplified count
-            }
-        } else {
-            // Use JPA for simple pagination
-            Page<Log> logPage = logService.findAll(pageNumber, pageSize);
-            logs = logPage.getContent();
-            totalElements = logPage.getTotalElements();
-        }
+        // Elasticsearch for filtered queries, PostgreSQL keyset listing when there is no filter
+        LogSearchResult searchResult = logQuery.isEmpty()
+                ? logService.listAll(pageNumber, pageSize, cursor, exactCount)
+                : logService.search(logQuery, pageNumber, pageSize, cursor);
+        List<Log> logs = searchResult.getContent();
+        long totalElements = searchResult.getTotalElements();
+        String nextCursor = searchResult.getNextCursor();
 
         Map<String, Object> result = new HashMap<>();
         result.put("content", logs);
@@ -68,10 +53,16 @@ public class LogController {
         result.put("totalPages", (int) Math.ceil((double) totalElements / pageSize));
         result.put("pageNumber", pageNumber);
         result.put("pageSize", pageSize);
+        result.put("nextCursor", nextCursor);
 
         return result;
     }
 
+    @QueryMapping
+    public List<Log> latestLogs(@Argument Map<String, Object> filter, @Argument String query, @Argument int limit) {
+        return logService.findLatest(LogQueryParser.parse(query).and(LogQuery.fromFilter(filter)), limit);
+    }
+
     @QueryMapping
     public List<Log> findLogsByApplicationAndSeverity(
             @Argument String application,
@@ -5,12 +5,12 @@ import com.ailoganalyzer.loganalyzer.dto.LogWithAi;
 import com.ailoganalyzer.loganalyzer.dto.AiResponse;
 import com.ailoganalyzer.loganalyzer.repository.jpa.LogJpaRepository;
 import com.ailoganalyzer.loganalyzer.service.ai.AiAssistant;
+import com.ailoganalyzer.loganalyzer.service.ai.AiEnrichmentExecutor;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -18,26 +18,32 @@ public class LogDataFetcher {
 
         private final LogJpaRepository logJpaRepository;
         private final AiAssistant aiAssistant;
+        private final AiEnrichmentExecutor aiEnrichmentExecutor;
 
         public List<LogWithAi> getLogsWithAi(int limit) {
-                return logJpaRepository.findAll(PageRequest.of(0, limit))
-                                .stream()
-                                .map(log -> {
-                                        // Single AI analysis call
-                                        String aiAnalysis = aiAssistant.analyzeAnomaly(log.getMessage());
-                                        AiResponse aiResponse = new AiResponse(aiAnalysis, 0.85f);
-
-                                        return new LogWithAi(
-                                                        log.getId(),
-                                                        log.getTimestamp(),
-                                                        log.getApplication(),
-                                                        log.getMessage(),
-                                                        log.getSeverity() != null ? log.getSeverity().name() : null,
-                                                        log.getSource(),
-                                                        log.getHost(),
-                                                        log.getMetadata(),
-                                                        aiResponse);
-                                })
-                                .collect(Collectors.toList());
+                List<Log> logs = logJpaRepository.findNewest(limit, 0);
+
+                // Analyze all logs concurrently; a log whose call failed or timed out is returned with ai = null
+                List<String> analyses = aiEnrichmentExecutor.mapAll(logs,
+                                log -> aiAssistant.analyzeAnomaly(log.getMessage()));
+
+                List<LogWithAi> result = new ArrayList<>(logs.size());
+                for (int i = 0; i < logs.size(); i++) {
+                        Log log = logs.get(i);
+                        String aiAnalysis = analyses.get(i);
+                        AiResponse aiResponse = aiAnalysis != null ? new AiResponse(aiAnalysis, 0.85f) : null;
+
+                        result.add(new LogWithAi(
+                                        log.getId(),
+                                        log.getTimestamp(),
+                                        log.getApplication(),
+                                        log.getMessage(),
+                                        log.getSeverity() != null ? log.getSeverity().name() : null,
+                                        log.getSource(),
+                                        log.getHost(),
+                                        log.getMetadata(),
+                                        aiResponse));
+                }
+                return result;
         }
 }
\ No newline at end of file
@@ -3,7 +3,7 @@ package com.ailoganalyzer.loganalyzer.graphql.controller;
 import com.ailoganalyzer.loganalyzer.model.Log;
 import com.ailoganalyzer.loganalyzer.model.MetadataField;
 import com.ailoganalyzer.loganalyzer.model.Severity;
-import com.ailoganalyzer.loganalyzer.service.LogService;
+import com.ailoganalyzer.loganalyzer.service.ingest.IngestionPipeline;
 import lombok.RequiredArgsConstructor;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
@@ -13,15 +13,30 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 @RequiredArgsConstructor
 public class LogMutationController {
 
-    private final LogService logService;
+    private final IngestionPipeline ingestionPipeline;
 
+    // Both mutations fail fast with a RESOURCE_EXHAUSTED error when the ingestion queue is full
     @MutationMapping
-    public Log ingestLog(@Argument Map<String, Object> input) {
+    public CompletableFuture<Log> ingestLog(@Argument Map<String, Object> input) {
+        return ingestionPipeline.submit(toLog(input));
+    }
+
+    @MutationMapping
+    public CompletableFuture<List<Log>> ingestLogs(@Argument List<Map<String, Object>> inputs) {
+        List<Log> logs = new ArrayList<>(inputs.size());
+        for (Map<String, Object> input : inputs) {
+            logs.add(toLog(input));
+        }
+        return ingestionPipeline.submitAll(logs);
+    }
+
+    private Log toLog(Map<String, Object> input) {
         // Convert the input to a Log object
         Log log = new Log();
         
@@ -58,7 +73,6 @@ public class LogMutationController {
             log.setMetadata(metadata);
         }
         
-        // Save using the service
-        return logService.saveLog(log);
+        return log;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.ailoganalyzer.loganalyzer.graphql.controller;
+
+import com.ailoganalyzer.loganalyzer.dto.LogStats;
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import com.ailoganalyzer.loganalyzer.service.rollup.LogRollupStore;
+import com.ailoganalyzer.loganalyzer.service.rollup.LogStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+@Controller
+@RequiredArgsConstructor
+public class LogStatsController {
+
+    private final LogStatsService logStatsService;
+
+    @QueryMapping
+    @SuppressWarnings("unchecked")
+    public LogStats logStats(@Argument Map<String, Object> range, @Argument List<String> groupBy,
+                             @Argument String interval, @Argument Map<String, Object> filter,
+                             @Argument Integer maxPoints) {
+        Instant to = range.get("to") != null ? parseInstant("to", (String) range.get("to")) : Instant.now();
+        Instant from;
+        if (range.get("last") != null) {
+            from = to.minus(Duration.ofSeconds(LogStatsService.intervalSeconds((String) range.get("last"))));
+        } else if (range.get("from") != null) {
+            from = parseInstant("from", (String) range.get("from"));
+        } else {
+            throw new IllegalArgumentException("range needs either from or last");
+        }
+
+        List<LogRollupStore.Dimension> dimensions = groupBy != null
+                ? groupBy.stream().map(LogRollupStore.Dimension::valueOf).toList()
+                : List.of();
+        List<String> applications = filter != null ? (List<String>) filter.get("applications") : null;
+        List<Severity> severities = filter != null && filter.get("severities") != null
+                ? ((List<Object>) filter.get("severities")).stream().map(s -> Severity.valueOf(s.toString())).toList()
+                : null;
+        List<String> hosts = filter != null ? (List<String>) filter.get("hosts") : null;
+
+        return logStatsService.stats(from, to, dimensions, interval, applications, severities, hosts, maxPoints);
+    }
+
+    private static Instant parseInstant(String name, String text) {
+        try {
+            return Instant.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + text);
+        }
+    }
+}
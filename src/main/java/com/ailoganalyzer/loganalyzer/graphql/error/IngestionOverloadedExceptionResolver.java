@@ -0,0 +1,33 @@
+package com.ailoganalyzer.loganalyzer.graphql.error;
+
+import com.ailoganalyzer.loganalyzer.service.ingest.IngestionOverloadedException;
+import graphql.ErrorClassification;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.schema.DataFetchingEnvironment;
+import org.springframework.graphql.execution.DataFetcherExceptionResolverAdapter;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Reports a full ingestion queue as a RESOURCE_EXHAUSTED error with a retryAfterSeconds extension,
+ * the GraphQL counterpart of HTTP 429 with Retry-After.
+ */
+@Component
+public class IngestionOverloadedExceptionResolver extends DataFetcherExceptionResolverAdapter {
+
+    private static final ErrorClassification RESOURCE_EXHAUSTED = ErrorClassification.errorClassification("RESOURCE_EXHAUSTED");
+
+    @Override
+    protected GraphQLError resolveToSingleError(Throwable ex, DataFetchingEnvironment env) {
+        if (!(ex instanceof IngestionOverloadedException overloaded)) {
+            return null;
+        }
+        return GraphqlErrorBuilder.newError(env)
+                .errorType(RESOURCE_EXHAUSTED)
+                .message(overloaded.getMessage())
+                .extensions(Map.of("retryAfterSeconds", overloaded.getRetryAfterSeconds()))
+                .build();
+    }
+}
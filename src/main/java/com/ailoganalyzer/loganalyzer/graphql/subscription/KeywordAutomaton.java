@@ -0,0 +1,157 @@
+package com.ailoganalyzer.loganalyzer.graphql.subscription;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton over the lower-cased keywords of all live subscriptions. One pass over a message
+ * finds every keyword it contains, however many keywords there are. Instances are immutable; the router
+ * builds a new one when the keyword set changes and swaps it in.
+ */
+final class KeywordAutomaton {
+
+    static final KeywordAutomaton EMPTY = build(List.of());
+
+    private final Map<String, Integer> ids;
+    // Transitions per state, as sorted characters with the matching target states
+    private final char[][] transitionChars;
+    private final int[][] transitionTargets;
+    private final int[] failure;
+    // Keyword ids ending at each state, including those reached through failure links
+    private final int[][] outputs;
+
+    private KeywordAutomaton(Map<String, Integer> ids, char[][] transitionChars, int[][] transitionTargets,
+                             int[] failure, int[][] outputs) {
+        this.ids = ids;
+        this.transitionChars = transitionChars;
+        this.transitionTargets = transitionTargets;
+        this.failure = failure;
+        this.outputs = outputs;
+    }
+
+    static KeywordAutomaton build(Collection<String> keywords) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> ownOutputs = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        ownOutputs.add(new ArrayList<>());
+
+        for (String keyword : keywords) {
+            if (keyword.isEmpty() || ids.containsKey(keyword)) {
+                continue;
+            }
+            int id = ids.size();
+            ids.put(keyword, id);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    ownOutputs.add(new ArrayList<>());
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            ownOutputs.get(state).add(id);
+        }
+
+        int states = trie.size();
+        char[][] transitionChars = new char[states][];
+        int[][] transitionTargets = new int[states][];
+        for (int state = 0; state < states; state++) {
+            TreeMap<Character, Integer> transitions = trie.get(state);
+            transitionChars[state] = new char[transitions.size()];
+            transitionTargets[state] = new int[transitions.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                transitionChars[state][i] = transition.getKey();
+                transitionTargets[state][i] = transition.getValue();
+                i++;
+            }
+        }
+
+        // Breadth-first, so a state's failure target is complete before the state itself
+        int[] failure = new int[states];
+        int[][] outputs = new int[states][];
+        outputs[0] = toArray(ownOutputs.get(0));
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : transitionTargets[0]) {
+            failure[child] = 0;
+            outputs[child] = toArray(ownOutputs.get(child));
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < transitionChars[state].length; i++) {
+                char c = transitionChars[state][i];
+                int child = transitionTargets[state][i];
+                int fallback = failure[state];
+                int target;
+                while ((target = step(transitionChars, transitionTargets, fallback, c)) < 0 && fallback != 0) {
+                    fallback = failure[fallback];
+                }
+                failure[child] = target >= 0 ? target : 0;
+                outputs[child] = concat(toArray(ownOutputs.get(child)), outputs[failure[child]]);
+                queue.add(child);
+            }
+        }
+        return new KeywordAutomaton(Map.copyOf(ids), transitionChars, transitionTargets, failure, outputs);
+    }
+
+    /**
+     * The id of a keyword in this automaton, or -1 if it is not one of its keywords.
+     */
+    int idOf(String keyword) {
+        return ids.getOrDefault(keyword, -1);
+    }
+
+    /**
+     * Which keywords, by id, occur in the text, ignoring case.
+     */
+    boolean[] scan(String text) {
+        boolean[] found = new boolean[ids.size()];
+        if (text == null || ids.isEmpty()) {
+            return found;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = step(transitionChars, transitionTargets, state, c)) < 0 && state != 0) {
+                state = failure[state];
+            }
+            state = next >= 0 ? next : 0;
+            for (int id : outputs[state]) {
+                found[id] = true;
+            }
+        }
+        return found;
+    }
+
+    private static int step(char[][] transitionChars, int[][] transitionTargets, int state, char c) {
+        int i = Arrays.binarySearch(transitionChars[state], c);
+        return i >= 0 ? transitionTargets[state][i] : -1;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package com.ailoganalyzer.loganalyzer.graphql.subscription;
+
+import com.ailoganalyzer.loganalyzer.model.Severity;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * What a live subscription asks for. Every non-empty part must match; values within a part are
+ * alternatives, except keywords, which must all appear in the message (case-insensitive). Equal filters
+ * are equal objects, so batched streams can be shared by filter.
+ */
+public record LogAlertFilter(Set<Severity> severities, Set<String> applications, Set<String> hosts,
+                             Map<String, String> metadata, Set<String> keywords, String messageRegex) {
+
+    public LogAlertFilter {
+        severities = Set.copyOf(severities);
+        applications = Set.copyOf(applications);
+        hosts = Set.copyOf(hosts);
+        metadata = Map.copyOf(metadata);
+        keywords = keywords.stream()
+                .map(keyword -> keyword.trim().toLowerCase(Locale.ROOT))
+                .filter(keyword -> !keyword.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        messageRegex = messageRegex != null && !messageRegex.isEmpty() ? messageRegex : null;
+    }
+
+    public static LogAlertFilter of(Collection<Severity> severities, Collection<String> applications) {
+        return new LogAlertFilter(
+                severities != null ? Set.copyOf(severities) : Set.of(),
+                applications != null ? Set.copyOf(applications) : Set.of(),
+                Set.of(), Map.of(), Set.of(), null);
+    }
+
+    /**
+     * Converts the GraphQL LogAlertFilter input.
+     */
+    @SuppressWarnings("unchecked")
+    public static LogAlertFilter fromArgument(Map<String, Object> filter) {
+        if (filter == null) {
+            return of(null, null);
+        }
+        Map<String, String> metadata = new HashMap<>();
+        List<Map<String, String>> pairs = (List<Map<String, String>>) filter.get("metadata");
+        if (pairs != null) {
+            for (Map<String, String> pair : pairs) {
+                String previous = metadata.put(pair.get("key"), pair.get("value"));
+                if (previous != null && !previous.equals(pair.get("value"))) {
+                    throw new IllegalArgumentException("Conflicting values for metadata key " + pair.get("key"));
+                }
+            }
+        }
+        List<Object> severities = (List<Object>) filter.get("severities");
+        return new LogAlertFilter(
+                severities != null ? severities.stream().map(s -> Severity.valueOf(s.toString())).collect(Collectors.toSet()) : Set.of(),
+                setOf((List<String>) filter.get("applications")),
+                setOf((List<String>) filter.get("hosts")),
+                metadata,
+                setOf((List<String>) filter.get("keywords")),
+                (String) filter.get("messageRegex"));
+    }
+
+    /**
+     * Combines this filter with the severities and applications given as separate arguments.
+     */
+    public LogAlertFilter withSeveritiesAndApplications(Collection<Severity> extraSeverities, Collection<String> extraApplications) {
+        if ((extraSeverities == null || extraSeverities.isEmpty()) && (extraApplications == null || extraApplications.isEmpty())) {
+            return this;
+        }
+        if ((extraSeverities != null && !extraSeverities.isEmpty() && !severities.isEmpty())
+                || (extraApplications != null && !extraApplications.isEmpty() && !applications.isEmpty())) {
+            throw new IllegalArgumentException("Severities and applications must be given either in the filter or as arguments");
+        }
+        return new LogAlertFilter(
+                extraSeverities != null && !extraSeverities.isEmpty() ? Set.copyOf(extraSeverities) : severities,
+                extraApplications != null && !extraApplications.isEmpty() ? Set.copyOf(extraApplications) : applications,
+                hosts, metadata, keywords, messageRegex);
+    }
+
+    private static Set<String> setOf(List<String> values) {
+        return values != null ? Set.copyOf(values) : Set.of();
+    }
+}
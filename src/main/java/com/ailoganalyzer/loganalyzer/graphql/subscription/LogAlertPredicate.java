@@ -0,0 +1,76 @@
+package com.ailoganalyzer.loganalyzer.graphql.subscription;
+
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.model.MetadataField;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The part of a {@link LogAlertFilter} the router's severity and application index does not cover,
+ * compiled once per subscription into a conjunction of clauses, cheapest first. It runs on the publishing
+ * thread, so the message regex is left to {@link MessageRegex}.
+ */
+@FunctionalInterface
+interface LogAlertPredicate {
+
+    boolean test(Log logEntry, MessageMatches matches);
+
+    /**
+     * Returns null when the filter has nothing beyond severities and applications.
+     */
+    static LogAlertPredicate compile(LogAlertFilter filter) {
+        List<LogAlertPredicate> clauses = new ArrayList<>();
+        if (!filter.hosts().isEmpty()) {
+            Set<String> hosts = filter.hosts();
+            clauses.add((logEntry, matches) -> logEntry.getHost() != null && hosts.contains(logEntry.getHost()));
+        }
+        if (!filter.metadata().isEmpty()) {
+            clauses.add(metadataClause(filter.metadata()));
+        }
+        if (!filter.keywords().isEmpty()) {
+            String[] keywords = filter.keywords().toArray(String[]::new);
+            clauses.add((logEntry, matches) -> {
+                for (String keyword : keywords) {
+                    if (!matches.contains(keyword)) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+        }
+
+        if (clauses.isEmpty()) {
+            return null;
+        }
+        if (clauses.size() == 1) {
+            return clauses.get(0);
+        }
+        LogAlertPredicate[] all = clauses.toArray(LogAlertPredicate[]::new);
+        return (logEntry, matches) -> {
+            for (LogAlertPredicate clause : all) {
+                if (!clause.test(logEntry, matches)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static LogAlertPredicate metadataClause(Map<String, String> expected) {
+        return (logEntry, matches) -> {
+            if (logEntry.getMetadata() == null) {
+                return false;
+            }
+            int matched = 0;
+            for (MetadataField field : logEntry.getMetadata()) {
+                if (field.getValue() != null && field.getValue().equals(expected.get(field.getKey()))) {
+                    matched++;
+                }
+            }
+            return matched >= expected.size();
+        };
+    }
+}
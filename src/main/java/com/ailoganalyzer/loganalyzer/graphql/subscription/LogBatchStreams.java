@@ -0,0 +1,88 @@
+package com.ailoganalyzer.loganalyzer.graphql.subscription;
+
+import com.ailoganalyzer.loganalyzer.dto.LogBatch;
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Batched live logs for high-rate streams. Subscribers asking for the same filter, batch size and delay
+ * share one stream: logs are collected once, cut into batches on size or time, and every subscriber
+ * receives the same {@link LogBatch} instance. Each subscriber still has its own bounded buffer of batches,
+ * dropping the oldest when it falls behind, so a slow client does not hold back the shared stream.
+ */
+@Component
+@Slf4j
+public class LogBatchStreams {
+
+    private record StreamKey(LogAlertFilter filter, int maxBatch, long maxDelayMs) {
+    }
+
+    private final LogSubscriptionRouter router;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentHashMap<StreamKey, Flux<LogBatch>> streams = new ConcurrentHashMap<>();
+
+    @Value("${loganalyzer.subscriptions.batch.max-size:1000}")
+    private int maxBatchLimit;
+
+    @Value("${loganalyzer.subscriptions.batch.min-delay-ms:10}")
+    private long minDelayMs;
+
+    @Value("${loganalyzer.subscriptions.batch.max-delay-ms:10000}")
+    private long maxDelayLimitMs;
+
+    // Batches buffered per subscriber
+    @Value("${loganalyzer.subscriptions.batch.buffer-size:16}")
+    private int bufferSize;
+
+    public LogBatchStreams(LogSubscriptionRouter router, ObjectMapper objectMapper) {
+        this.router = router;
+        this.objectMapper = objectMapper;
+    }
+
+    public Flux<LogBatch> subscribe(LogAlertFilter filter, int maxBatch, long maxDelayMs) {
+        if (maxBatch < 1 || maxBatch > maxBatchLimit) {
+            throw new IllegalArgumentException("maxBatch must be between 1 and " + maxBatchLimit);
+        }
+        if (maxDelayMs < minDelayMs || maxDelayMs > maxDelayLimitMs) {
+            throw new IllegalArgumentException("maxDelayMs must be between " + minDelayMs + " and " + maxDelayLimitMs);
+        }
+        StreamKey key = new StreamKey(filter, maxBatch, maxDelayMs);
+        return streams.computeIfAbsent(key, this::createStream)
+                .onBackpressureBuffer(bufferSize, dropped -> log.debug("Dropped a batch of {} logs for a slow subscriber",
+                        dropped.getCount()), BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    private Flux<LogBatch> createStream(StreamKey key) {
+        AtomicReference<Flux<LogBatch>> self = new AtomicReference<>();
+        Flux<LogBatch> stream = router.subscribe(key.filter(), LogSubscriptionRouter.OverflowPolicy.DROP_OLDEST)
+                .bufferTimeout(key.maxBatch(), Duration.ofMillis(key.maxDelayMs()), true)
+                .map(logs -> new LogBatch(logs, this::serialize))
+                .doFinally(signal -> streams.remove(key, self.get()))
+                // Shared while it has subscribers; the last one leaving stops it
+                .publish()
+                .refCount();
+        self.set(stream);
+        log.info("Started batched log stream {}", key);
+        return stream;
+    }
+
+    private String serialize(List<Log> logs) {
+        try {
+            return objectMapper.writeValueAsString(logs);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.ailoganalyzer.loganalyzer.graphql.subscription;
+
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers live logs to subscribers. Subscribers are indexed by severity and application, so publishing a
+ * log only touches the subscribers that asked for it; the rest of a subscriber's filter is a predicate
+ * compiled when it subscribes. Keywords of all subscribers share one Aho-Corasick automaton, rebuilt
+ * copy-on-write when the keyword set changes, so each message is scanned once however many subscribers
+ * look for keywords. {@link #publish} may be called from any number of threads. Each subscriber has its
+ * own bounded buffer and is drained on a separate scheduler, so a slow client only affects itself: when
+ * its buffer is full, its {@link OverflowPolicy} decides what happens.
+ * A message regex is applied after the buffer, on the delivery scheduler, so the cost of a client's
+ * pattern never lands on the publishing thread. Before the buffer, only a literal the regex requires is
+ * looked up in the message, so most logs the regex would reject never take buffer space. The rest count
+ * towards loganalyzer.subscriptions.dropped if the buffer overflows, even if the regex would reject them.
+ */
+@Component
+@Slf4j
+public class LogSubscriptionRouter {
+
+    /**
+     * What to do with a subscriber whose buffer is full.
+     */
+    public enum OverflowPolicy {
+        DROP_OLDEST, // Discard the oldest buffered log to make room
+        CONFLATE, // Keep only the most recent log until the client catches up
+        DISCONNECT // End the subscription with an error
+    }
+
+    private record Route(LogAlertFilter filter, Set<Severity> severities, LogAlertPredicate predicate,
+                         MessageRegex regex, FluxSink<Log> sink) {
+    }
+
+    // Subscribers of one severity, by application
+    private static final class SeverityIndex {
+        private final Set<Route> anyApplication = ConcurrentHashMap.newKeySet();
+        private final ConcurrentHashMap<String, Set<Route>> byApplication = new ConcurrentHashMap<>();
+    }
+
+    private final Map<Severity, SeverityIndex> index = new EnumMap<>(Severity.class);
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    // Subscribers per keyword; guarded by this
+    private final Map<String, Integer> keywordCounts = new HashMap<>();
+    private volatile KeywordAutomaton keywordAutomaton = KeywordAutomaton.EMPTY;
+    private final Scheduler deliveryScheduler;
+    private final Counter droppedCounter;
+    private final Counter disconnectedCounter;
+
+    private final int bufferSize;
+    private final OverflowPolicy defaultOverflowPolicy;
+    private final int maxRegexLength;
+    private final long regexTimeoutMs;
+
+    public LogSubscriptionRouter(MeterRegistry meterRegistry,
+                                 @Value("${loganalyzer.subscriptions.buffer-size:256}") int bufferSize,
+                                 @Value("${loganalyzer.subscriptions.overflow-policy:DROP_OLDEST}") OverflowPolicy defaultOverflowPolicy,
+                                 @Value("${loganalyzer.subscriptions.delivery-threads:4}") int deliveryThreads,
+                                 @Value("${loganalyzer.subscriptions.max-regex-length:200}") int maxRegexLength,
+                                 @Value("${loganalyzer.subscriptions.regex-timeout-ms:100}") long regexTimeoutMs) {
+        this.bufferSize = bufferSize;
+        this.defaultOverflowPolicy = defaultOverflowPolicy;
+        this.maxRegexLength = maxRegexLength;
+        this.regexTimeoutMs = regexTimeoutMs;
+        for (Severity severity : Severity.values()) {
+            index.put(severity, new SeverityIndex());
+        }
+        this.deliveryScheduler = Schedulers.newBoundedElastic(deliveryThreads, Integer.MAX_VALUE, "subscription-delivery");
+
+        Gauge.builder("loganalyzer.subscriptions.active", subscriberCount, AtomicInteger::get)
+                .description("Active log subscriptions")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("loganalyzer.subscriptions.dropped")
+                .description("Logs dropped because a subscriber's buffer was full, including logs its message regex would have rejected")
+                .register(meterRegistry);
+        this.disconnectedCounter = Counter.builder("loganalyzer.subscriptions.disconnected")
+                .description("Subscriptions ended because their buffer overflowed")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        deliveryScheduler.dispose();
+    }
+
+    /**
+     * Live logs matching the filter. A null policy uses loganalyzer.subscriptions.overflow-policy.
+     *
+     * @throws IllegalArgumentException if the filter's regex is invalid or too long; the subscription
+     *                                  ends with one if the regex takes longer than regex-timeout-ms on a message
+     */
+    public Flux<Log> subscribe(LogAlertFilter filter, OverflowPolicy policy) {
+        // Compiled here so a bad filter fails the subscription request itself
+        LogAlertPredicate predicate = LogAlertPredicate.compile(filter);
+        MessageRegex regex = filter.messageRegex() != null
+                ? MessageRegex.compile(filter.messageRegex(), maxRegexLength, regexTimeoutMs) : null;
+        Set<Severity> severities = filter.severities().isEmpty() ? Set.of(Severity.values()) : filter.severities();
+        Flux<Log> logs = Flux.create(sink -> {
+            Route route = new Route(filter, severities, predicate, regex, sink);
+            register(route);
+            sink.onDispose(() -> unregister(route));
+        });
+        // Downstream of the buffer, so client writes and the regex never run on the publishing thread
+        Flux<Log> delivered = withOverflowPolicy(logs, policy != null ? policy : defaultOverflowPolicy)
+                .publishOn(deliveryScheduler, 32);
+        return regex != null ? delivered.filter(logEntry -> regex.matches(logEntry.getMessage())) : delivered;
+    }
+
+    private Flux<Log> withOverflowPolicy(Flux<Log> logs, OverflowPolicy policy) {
+        return switch (policy) {
+            case DROP_OLDEST -> logs.onBackpressureBuffer(bufferSize, dropped -> droppedCounter.increment(),
+                    BufferOverflowStrategy.DROP_OLDEST);
+            case CONFLATE -> logs.onBackpressureLatest();
+            case DISCONNECT -> logs.onBackpressureBuffer(bufferSize, dropped -> disconnectedCounter.increment(),
+                    BufferOverflowStrategy.ERROR);
+        };
+    }
+
+    /**
+     * Hands the log to every matching subscriber. Never blocks on a subscriber.
+     */
+    public void publish(Log logEntry) {
+        if (logEntry.getSeverity() == null) {
+            return;
+        }
+        SeverityIndex severityIndex = index.get(logEntry.getSeverity());
+        MessageMatches matches = new MessageMatches(logEntry.getMessage(), keywordAutomaton);
+        deliver(severityIndex.anyApplication, logEntry, matches);
+        if (logEntry.getApplication() != null) {
+            Set<Route> routes = severityIndex.byApplication.get(logEntry.getApplication());
+            if (routes != null) {
+                deliver(routes, logEntry, matches);
+            }
+        }
+    }
+
+    private static void deliver(Set<Route> routes, Log logEntry, MessageMatches matches) {
+        for (Route route : routes) {
+            if ((route.predicate() == null || route.predicate().test(logEntry, matches))
+                    && (route.regex() == null || route.regex().mayMatch(logEntry.getMessage()))) {
+                route.sink().next(logEntry);
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private void register(Route route) {
+        addKeywords(route.filter().keywords());
+        for (Severity severity : route.severities()) {
+            SeverityIndex severityIndex = index.get(severity);
+            if (route.filter().applications().isEmpty()) {
+                severityIndex.anyApplication.add(route);
+            } else {
+                for (String application : route.filter().applications()) {
+                    // Added inside compute so a concurrent unregister cannot drop the set in between
+                    severityIndex.byApplication.compute(application, (key, routes) -> {
+                        Set<Route> result = routes != null ? routes : ConcurrentHashMap.newKeySet();
+                        result.add(route);
+                        return result;
+                    });
+                }
+            }
+        }
+        log.info("Log subscription added. Active subscriptions: {}", subscriberCount.incrementAndGet());
+    }
+
+    private void unregister(Route route) {
+        for (Severity severity : route.severities()) {
+            SeverityIndex severityIndex = index.get(severity);
+            severityIndex.anyApplication.remove(route);
+            for (String application : route.filter().applications()) {
+                severityIndex.byApplication.computeIfPresent(application, (key, routes) -> {
+                    routes.remove(route);
+                    return routes.isEmpty() ? null : routes;
+                });
+            }
+        }
+        removeKeywords(route.filter().keywords());
+        log.info("Log subscription removed. Active subscriptions: {}", subscriberCount.decrementAndGet());
+    }
+
+    private synchronized void addKeywords(Set<String> keywords) {
+        boolean changed = false;
+        for (String keyword : keywords) {
+            changed |= keywordCounts.merge(keyword, 1, Integer::sum) == 1;
+        }
+        if (changed) {
+            keywordAutomaton = KeywordAutomaton.build(keywordCounts.keySet());
+        }
+    }
+
+    private synchronized void removeKeywords(Set<String> keywords) {
+        boolean changed = false;
+        for (String keyword : keywords) {
+            changed |= keywordCounts.computeIfPresent(keyword, (key, count) -> count > 1 ? count - 1 : null) == null;
+        }
+        if (changed) {
+            keywordAutomaton = KeywordAutomaton.build(keywordCounts.keySet());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.ailoganalyzer.loganalyzer.graphql.subscription;
+
+import java.util.Locale;
+
+/**
+ * Keyword matches for one published log. The message is scanned at most once, and only if a subscriber
+ * with keywords is asked about it.
+ */
+final class MessageMatches {
+
+    private final String message;
+    private final KeywordAutomaton automaton;
+    private boolean[] found;
+
+    MessageMatches(String message, KeywordAutomaton automaton) {
+        this.message = message;
+        this.automaton = automaton;
+    }
+
+    boolean contains(String keyword) {
+        int id = automaton.idOf(keyword);
+        if (id < 0) {
+            // Subscribed after this automaton was taken; rare, so checked directly
+            return message != null && message.toLowerCase(Locale.ROOT).contains(keyword);
+        }
+        if (found == null) {
+            found = automaton.scan(message);
+        }
+        return found[id];
+    }
+}
@@ -0,0 +1,156 @@
+package com.ailoganalyzer.loganalyzer.graphql.subscription;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A subscriber's message regex. The router applies it after the subscriber's buffer, on the delivery
+ * scheduler, never on the publishing thread. A pattern such as {@code (a+)+$} can still backtrack for an
+ * exponential time on a short message and hold a delivery thread shared with other subscribers, so every
+ * match is cut off after a time limit, which ends the subscription with an error.
+ *
+ * Before the buffer, the router only checks that the message contains the longest literal every match
+ * must include, if the pattern has one, so logs that cannot match do not take up buffer space.
+ */
+final class MessageRegex {
+
+    private static final class TimeLimitExceeded extends RuntimeException {
+        private TimeLimitExceeded() {
+            super(null, null, false, false);
+        }
+    }
+
+    // The input as seen by the matcher, checking the clock every 1024 character reads
+    private static final class TimeLimitedText implements CharSequence {
+        private final String text;
+        private final long deadline;
+        private int reads;
+
+        private TimeLimitedText(String text, long deadline) {
+            this.text = text;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if ((++reads & 1023) == 0 && System.nanoTime() - deadline > 0) {
+                throw new TimeLimitExceeded();
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    private final Pattern pattern;
+    private final long timeoutMs;
+    private final String requiredLiteral;
+
+    private MessageRegex(Pattern pattern, long timeoutMs) {
+        this.pattern = pattern;
+        this.timeoutMs = timeoutMs;
+        this.requiredLiteral = requiredLiteral(pattern.pattern());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the regex is invalid or too long
+     */
+    static MessageRegex compile(String regex, int maxLength, long timeoutMs) {
+        if (regex.length() > maxLength) {
+            throw new IllegalArgumentException("messageRegex is longer than " + maxLength + " characters");
+        }
+        try {
+            return new MessageRegex(Pattern.compile(regex), timeoutMs);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid messageRegex: " + e.getDescription());
+        }
+    }
+
+    /**
+     * Cheap check for the publishing thread: false only if the message cannot match.
+     */
+    boolean mayMatch(String message) {
+        return message != null && (requiredLiteral == null || message.contains(requiredLiteral));
+    }
+
+    /**
+     * @throws IllegalArgumentException if matching one message takes longer than the time limit
+     */
+    boolean matches(String message) {
+        if (message == null) {
+            return false;
+        }
+        try {
+            return pattern.matcher(new TimeLimitedText(message, System.nanoTime() + timeoutMs * 1_000_000)).find();
+        } catch (TimeLimitExceeded e) {
+            throw new IllegalArgumentException("messageRegex took longer than " + timeoutMs + " ms on one message");
+        }
+    }
+
+    // The longest run of plain characters outside any group or class, or null if there is none. Anything
+    // that could make such a run optional or change how it matches (alternation, inline flags, quoting,
+    // escapes taking arguments, back references) makes it give up.
+    static String requiredLiteral(String regex) {
+        // A class starting with ] holds it as a literal rather than ending there
+        if (regex.contains("|") || regex.contains("(?") || regex.contains("[]") || regex.contains("[^]")) {
+            return null;
+        }
+        String longest = "";
+        StringBuilder run = new StringBuilder();
+        int groups = 0;
+        int classes = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (groups == 0 && classes == 0 && METACHARACTERS.indexOf(c) < 0) {
+                run.append(c);
+                continue;
+            }
+            // A quantifier makes the character before it optional or repeated
+            if ((c == '?' || c == '*' || c == '+' || c == '{') && run.length() > 0) {
+                run.setLength(run.length() - 1);
+            }
+            if (run.length() > longest.length()) {
+                longest = run.toString();
+            }
+            run.setLength(0);
+            if (c == '\\') {
+                char escaped = i + 1 < regex.length() ? regex.charAt(++i) : ' ';
+                if (Character.isDigit(escaped) || "xucpPNkQ".indexOf(escaped) >= 0) {
+                    return null;
+                }
+            } else if (c == '[') {
+                classes++;
+            } else if (c == ']' && classes > 0) {
+                classes--;
+            } else if (classes > 0) {
+                continue;
+            } else if (c == '(') {
+                groups++;
+            } else if (c == ')' && groups > 0) {
+                groups--;
+            } else if (c == '{') {
+                int end = regex.indexOf('}', i);
+                i = end >= 0 ? end : regex.length();
+            }
+        }
+        if (run.length() > longest.length()) {
+            longest = run.toString();
+        }
+        return longest.isEmpty() ? null : longest;
+    }
+}
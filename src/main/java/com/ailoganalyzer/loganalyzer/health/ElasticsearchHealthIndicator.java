@@ -1,21 +1,22 @@
 package com.ailoganalyzer.loganalyzer.health;
 
+import com.ailoganalyzer.loganalyzer.service.LogIndexTemplateManager;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.stereotype.Component;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch.indices.GetIndexRequest;
 import java.io.IOException;
 
 @Component
 public class ElasticsearchHealthIndicator implements HealthIndicator {
 
     private final ElasticsearchClient elasticsearchClient;
-    private final String indexName;
+    private final String templateName;
 
     public ElasticsearchHealthIndicator(ElasticsearchClient elasticsearchClient) {
         this.elasticsearchClient = elasticsearchClient;
-        this.indexName = "logs"; // The main index name used in your application
+        // Logs live in daily indices, which are only searchable correctly if they were created from this template
+        this.templateName = LogIndexTemplateManager.TEMPLATE_NAME;
     }
 
     @Override
@@ -23,21 +24,21 @@ public class ElasticsearchHealthIndicator implements HealthIndicator {
         Health.Builder healthBuilder = new Health.Builder();
         
         try {
-            var response = elasticsearchClient.indices().exists(builder -> 
-                builder.index(indexName)
+            var response = elasticsearchClient.indices().existsIndexTemplate(builder -> 
+                builder.name(templateName)
             );
             
             if (response.value()) {
                 return healthBuilder
                         .up()
-                        .withDetail("index", indexName)
+                        .withDetail("indexTemplate", templateName)
                         .withDetail("status", "available")
                         .build();
             } else {
                 return healthBuilder
                         .down()
-                        .withDetail("index", indexName)
-                        .withDetail("status", "index not found")
+                        .withDetail("indexTemplate", templateName)
+                        .withDetail("status", "index template not found")
                         .build();
             }
         } catch (IOException e) {
@@ -47,4 +48,4 @@ public class ElasticsearchHealthIndicator implements HealthIndicator {
                     .build();
         }
     }
-} 
\ No newline at end of file
+}
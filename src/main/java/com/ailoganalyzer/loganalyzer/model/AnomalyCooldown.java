@@ -0,0 +1,26 @@
+package com.ailoganalyzer.loganalyzer.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Last time an anomaly type was alerted for an application, shared by every instance.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "anomaly_cooldowns")
+public class AnomalyCooldown {
+
+    // Anomaly type and application, e.g. ERROR_SPIKE:checkout-service
+    @Id
+    private String alertKey;
+
+    @Column(nullable = false)
+    private Instant lastAlerted;
+}
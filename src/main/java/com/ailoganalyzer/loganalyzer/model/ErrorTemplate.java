@@ -0,0 +1,33 @@
+package com.ailoganalyzer.loganalyzer.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "error_templates")
+public class ErrorTemplate {
+
+    // 64-bit template fingerprint, the numeric form of Log.templateId
+    @Id
+    private Long fingerprint;
+
+    @Column(columnDefinition = "TEXT")
+    private String template;
+
+    private String application;
+
+    private Instant firstSeen;
+
+    private Instant lastSeen;
+
+    private Long occurrences;
+}
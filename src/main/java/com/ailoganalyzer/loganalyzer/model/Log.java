@@ -1,10 +1,13 @@
 package com.ailoganalyzer.loganalyzer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
@@ -17,12 +20,15 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+// Range-partitioned by day on timestamp, see database_setup.sql and LogPartitionManager
 @Table(name = "logs")
-@Document(indexName = "logs")
+// Stored in daily indices (logs-yyyy.MM.dd) chosen by LogIndexRouter; reads span all of them
+@Document(indexName = "logs-*", createIndex = false)
 public class Log {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "logs_seq")
+    @SequenceGenerator(name = "logs_seq", sequenceName = "logs_seq", allocationSize = 50)
     private Long id;
 
     @Field(type = FieldType.Date)
@@ -44,8 +50,27 @@ public class Log {
     @Field(type = FieldType.Keyword)
     private String host;
 
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
-    @JoinColumn(name = "log_id")
-    @Field(type = FieldType.Nested)
+    // Assigned by the template miner when the log is indexed; only stored in Elasticsearch
+    @Transient
+    @Field(type = FieldType.Keyword)
+    private String templateId;
+
+    // A JSONB column on the log row, so reads need no join.
+    // Kept in _source only; searches use metadataPairs, which avoids one hidden nested document per field.
+    // Spring Data does not emit enabled = false for an entity-typed property, so LogIndexTemplateManager
+    // sets it in the index template
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    @Field(type = FieldType.Object, enabled = false)
     private List<MetadataField> metadata;
+
+    // "key=value" for each metadata field, filled in by LogIndexer; only stored in Elasticsearch
+    @Transient
+    @JsonIgnore
+    @Field(type = FieldType.Keyword)
+    private List<String> metadataPairs;
+
+    public static String metadataPair(String key, String value) {
+        return key + "=" + value;
+    }
 } 
\ No newline at end of file
@@ -1,6 +1,5 @@
 package com.ailoganalyzer.loganalyzer.model;
 
-import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,21 +7,16 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
 
+// Stored inside the log row as part of its JSONB metadata column
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Entity
-@Table(name = "metadata_fields")
 public class MetadataField {
 
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-
     @Field(type = FieldType.Keyword)
     private String key;
 
     @Field(type = FieldType.Keyword)
     private String value;
-} 
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package com.ailoganalyzer.loganalyzer.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A saved log still waiting to be published to Kafka. Written in the same transaction as the log and
+ * deleted by OutboxRelay once Kafka has acknowledged it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "log_outbox", indexes = @Index(name = "idx_log_outbox_shard_id", columnList = "shard, id"))
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "log_outbox_seq")
+    @SequenceGenerator(name = "log_outbox_seq", sequenceName = "log_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long logId;
+
+    // The log's partition key, so the relay reads only the daily partitions holding the batch
+    @Column(nullable = false)
+    private Instant logTimestamp;
+
+    // Derived from the Kafka record key, so all events for one key are relayed by one owner in id order
+    @Column(nullable = false)
+    private Integer shard;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
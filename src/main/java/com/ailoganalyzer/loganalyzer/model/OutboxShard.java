@@ -0,0 +1,20 @@
+package com.ailoganalyzer.loganalyzer.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One row per outbox shard. A relay owns a shard while it holds this row locked.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "log_outbox_shards")
+public class OutboxShard {
+
+    @Id
+    private Integer shard;
+}
@@ -44,10 +44,10 @@ public interface LogElasticsearchRepository extends ElasticsearchRepository<Log,
             Pageable pageable);
     
     // Custom query to find logs by metadata key and value
-    @Query("{\"nested\": {\"path\": \"metadata\", \"query\": {\"bool\": {\"must\": [{\"term\": {\"metadata.key\": \"?0\"}}, {\"term\": {\"metadata.value\": \"?1\"}}]}}}}")
+    @Query("{\"term\": {\"metadataPairs\": \"?0=?1\"}}")
     List<Log> findByMetadataKeyAndValue(String key, String value);
     
     // Custom query to find logs by metadata key and value with pagination
-    @Query("{\"nested\": {\"path\": \"metadata\", \"query\": {\"bool\": {\"must\": [{\"term\": {\"metadata.key\": \"?0\"}}, {\"term\": {\"metadata.value\": \"?1\"}}]}}}}")
+    @Query("{\"term\": {\"metadataPairs\": \"?0=?1\"}}")
     Page<Log> findByMetadataKeyAndValue(String key, String value, Pageable pageable);
 } 
\ No newline at end of file
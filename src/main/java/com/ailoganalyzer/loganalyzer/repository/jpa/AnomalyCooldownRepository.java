@@ -0,0 +1,25 @@
+package com.ailoganalyzer.loganalyzer.repository.jpa;
+
+import com.ailoganalyzer.loganalyzer.model.AnomalyCooldown;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface AnomalyCooldownRepository extends JpaRepository<AnomalyCooldown, String> {
+
+    // Returns 1 if this call started the cooldown, 0 if it is still running or another node started it first
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO anomaly_cooldowns (alert_key, last_alerted) VALUES (:alertKey, :now) " +
+            "ON CONFLICT (alert_key) DO UPDATE SET last_alerted = EXCLUDED.last_alerted " +
+            "WHERE anomaly_cooldowns.last_alerted <= :expiredAt", nativeQuery = true)
+    int tryStart(@Param("alertKey") String alertKey,
+                 @Param("now") Instant now,
+                 @Param("expiredAt") Instant expiredAt);
+}
@@ -0,0 +1,40 @@
+package com.ailoganalyzer.loganalyzer.repository.jpa;
+
+import com.ailoganalyzer.loganalyzer.model.ErrorTemplate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ErrorTemplateRepository extends JpaRepository<ErrorTemplate, Long> {
+
+    List<ErrorTemplate> findByLastSeenAfter(Instant since);
+
+    // Returns 1 if this call registered the template, 0 if another node got there first
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO error_templates (fingerprint, template, application, first_seen, last_seen, occurrences) " +
+            "VALUES (:fingerprint, :template, :application, :seen, :seen, 1) " +
+            "ON CONFLICT (fingerprint) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("fingerprint") long fingerprint,
+                       @Param("template") String template,
+                       @Param("application") String application,
+                       @Param("seen") Instant seen);
+
+    @Modifying
+    @Transactional
+    // Also stores the template as it has widened since it was registered, which keeps its fingerprint
+    @Query(value = "UPDATE error_templates SET occurrences = occurrences + :occurrences, " +
+            "last_seen = GREATEST(last_seen, :lastSeen), template = :template WHERE fingerprint = :fingerprint",
+            nativeQuery = true)
+    int recordOccurrences(@Param("fingerprint") long fingerprint,
+                          @Param("occurrences") long occurrences,
+                          @Param("lastSeen") Instant lastSeen,
+                          @Param("template") String template);
+}
@@ -2,10 +2,34 @@ package com.ailoganalyzer.loganalyzer.repository.jpa;
 
 import com.ailoganalyzer.loganalyzer.model.Log;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
 @Repository("logJpaRepository")
 public interface LogJpaRepository extends JpaRepository<Log, Long> {
     // Basic CRUD operations are provided by JpaRepository
-    // Add any specific JPA queries if needed
-} 
\ No newline at end of file
+
+    // Newest first; both listings walk the (timestamp, id) index and never count
+    @Query(value = "SELECT * FROM logs ORDER BY timestamp DESC, id DESC LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Log> findNewest(@Param("limit") int limit, @Param("offset") long offset);
+
+    @Query(value = "SELECT * FROM logs WHERE (timestamp, id) < (:timestamp, :id) " +
+            "ORDER BY timestamp DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Log> findNewestBefore(@Param("timestamp") Instant timestamp, @Param("id") long id, @Param("limit") int limit);
+
+    // Filtering on the partition key as well as the id lets PostgreSQL skip the daily partitions not involved
+    @Query(value = "SELECT * FROM logs WHERE id IN (:ids) AND timestamp IN (:timestamps)", nativeQuery = true)
+    List<Log> findAllByIdAndTimestamp(@Param("ids") Collection<Long> ids, @Param("timestamps") Collection<Instant> timestamps);
+
+    // Planner row estimate from the last ANALYZE, summed over the partitions; reads no table data
+    @Query(value = "SELECT CAST(COALESCE(SUM(GREATEST(c.reltuples, 0)), 0) AS BIGINT) FROM pg_class c " +
+            "WHERE c.relkind = 'r' AND (c.oid = CAST('logs' AS regclass) " +
+            "OR c.oid IN (SELECT i.inhrelid FROM pg_inherits i WHERE i.inhparent = CAST('logs' AS regclass)))",
+            nativeQuery = true)
+    long estimateCount();
+}
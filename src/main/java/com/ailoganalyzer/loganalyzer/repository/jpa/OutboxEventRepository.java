@@ -0,0 +1,34 @@
+package com.ailoganalyzer.loganalyzer.repository.jpa;
+
+import com.ailoganalyzer.loganalyzer.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO log_outbox_shards (shard) SELECT generate_series(0, :shards - 1) " +
+            "ON CONFLICT (shard) DO NOTHING", nativeQuery = true)
+    int createShards(@Param("shards") int shards);
+
+    // Locks one shard with pending events that no other relay holds; the lock lasts until the transaction ends
+    @Query(value = "SELECT s.shard FROM log_outbox_shards s " +
+            "WHERE EXISTS (SELECT 1 FROM log_outbox o WHERE o.shard = s.shard) " +
+            "ORDER BY random() LIMIT 1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<Integer> claimShard();
+
+    @Query(value = "SELECT * FROM log_outbox WHERE shard = :shard ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<OutboxEvent> findNextBatch(@Param("shard") int shard, @Param("limit") int limit);
+
+    @Query(value = "SELECT count(*) FROM log_outbox", nativeQuery = true)
+    long countPending();
+}
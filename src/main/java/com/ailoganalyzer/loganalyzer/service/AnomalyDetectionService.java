@@ -3,82 +3,152 @@ package com.ailoganalyzer.loganalyzer.service;
 
 import com.ailoganalyzer.loganalyzer.model.Anomaly;
 import com.ailoganalyzer.loganalyzer.model.Log;
-import com.ailoganalyzer.loganalyzer.repository.elasticsearch.LogElasticsearchRepository;
-import com.ailoganalyzer.loganalyzer.service.ai.AiAssistant;
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import com.ailoganalyzer.loganalyzer.repository.jpa.AnomalyCooldownRepository;
+import com.ailoganalyzer.loganalyzer.service.ai.AiEnrichmentExecutor;
+import com.ailoganalyzer.loganalyzer.service.ai.CachingAiAssistant;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
-import org.springframework.data.elasticsearch.core.SearchHits;
-import org.springframework.data.elasticsearch.core.query.Criteria;
-import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.ZoneOffset;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AnomalyDetectionService {
 
-    private final LogElasticsearchRepository logRepository;
-    private final ElasticsearchOperations elasticsearchOperations;
-    private final AiAssistant aiAssistant;
+    private final DetectionQueryPlanner detectionQueryPlanner;
+    private final CachingAiAssistant aiAssistant;
+    private final AiEnrichmentExecutor aiEnrichmentExecutor;
     private final KafkaProducerService kafkaProducerService;
+    private final LogRateWindow logRateWindow;
+    private final AnomalyCooldownRepository anomalyCooldownRepository;
+
+    private static final Duration DETECTION_WINDOW = Duration.ofHours(1);
+    private static final Severity[] ERROR_SEVERITIES = DetectionQueryPlanner.ERROR_SEVERITIES.toArray(new Severity[0]);
+
+    // This node's cooldowns, used only while the shared ones in anomaly_cooldowns cannot be read
+    private final Map<String, Instant> lastAlerted = new ConcurrentHashMap<>();
+
+    @Value("${loganalyzer.anomaly.alert-cooldown-ms:1800000}")
+    private long alertCooldownMs;
 
     @Async
     public void analyzeRecentLogs() {
         try {
             List<Anomaly> anomalies = detectAnomalies();
-            for (Anomaly anomaly : anomalies) {
-                processAnomalyWithAi(anomaly);
-            }
+            processAnomaliesWithAi(anomalies.stream().filter(this::tryStartCooldown).toList());
         } catch (Exception e) {
             log.error("Error during anomaly detection: {}", e.getMessage(), e);
         }
     }
 
+    /**
+     * Evaluates the rate-based detectors against the in-memory counters only. This is cheap enough to
+     * run every few seconds and never touches Elasticsearch; it does nothing until the window is warm.
+     */
+    @Async
+    public void analyzeRateWindows() {
+        if (!logRateWindow.covers(DETECTION_WINDOW.multipliedBy(2))) {
+            return;
+        }
+        try {
+            List<Anomaly> anomalies = new ArrayList<>();
+            anomalies.addAll(detectErrorSpikes());
+            anomalies.addAll(detectVolumeAnomalies());
+            processAnomaliesWithAi(anomalies.stream().filter(this::tryStartCooldown).toList());
+        } catch (Exception e) {
+            log.error("Error during windowed anomaly detection: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Raises a NEW_ERROR_PATTERN anomaly for a template the registry has just seen for the first time.
+     * The registry guarantees this happens once per template across the cluster, so no cooldown applies.
+     */
+    @Async
+    public void reportNewErrorTemplate(Log logEntry, String template) {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("pattern", template != null ? template : logEntry.getMessage());
+        metrics.put("template_id", logEntry.getTemplateId());
+        metrics.put("example_message", logEntry.getMessage());
+
+        Anomaly anomaly = Anomaly.builder()
+                .id(UUID.randomUUID().toString())
+                .type("NEW_ERROR_PATTERN")
+                .detectedAt(LocalDateTime.now())
+                .severity("MEDIUM")
+                .application(logEntry.getApplication())
+                .description(String.format("New error pattern detected: %s", metrics.get("pattern")))
+                .metrics(metrics)
+                .confidence(0.70)
+                .build();
+        processAnomalyWithAi(anomaly);
+    }
+
+    /**
+     * Every instance sees every log, so all of them detect the same rate anomalies. The cooldown is started
+     * in the database so that only one instance alerts, and a sustained condition is not re-alerted on
+     * every check.
+     */
+    private boolean tryStartCooldown(Anomaly anomaly) {
+        Instant now = Instant.now();
+        String key = anomaly.getType() + ":" + anomaly.getApplication();
+        try {
+            return anomalyCooldownRepository.tryStart(key, now, now.minusMillis(alertCooldownMs)) == 1;
+        } catch (Exception e) {
+            log.warn("Could not start the shared cooldown for {}, using this node's: {}", key, e.getMessage());
+        }
+        boolean[] started = new boolean[1];
+        lastAlerted.compute(key, (k, last) -> {
+            if (last == null || last.plusMillis(alertCooldownMs).isBefore(now)) {
+                started[0] = true;
+                return now;
+            }
+            return last;
+        });
+        return started[0];
+    }
+
     private List<Anomaly> detectAnomalies() {
         List<Anomaly> anomalies = new ArrayList<>();
 
+        // One size-0 aggregation request provides the inputs for every detector
+        DetectionQueryPlanner.DetectionSnapshot snapshot = detectionQueryPlanner.fetch(DETECTION_WINDOW);
+        boolean windowWarm = logRateWindow.covers(DETECTION_WINDOW.multipliedBy(2));
+
         // Check for error rate spikes
-        anomalies.addAll(detectErrorSpikes());
+        anomalies.addAll(windowWarm ? detectErrorSpikes()
+                : detectErrorSpikes(snapshot.recentErrors(), snapshot.previousErrors()));
 
         // Check for volume drops
-        anomalies.addAll(detectVolumeAnomalies());
+        anomalies.addAll(windowWarm ? detectVolumeAnomalies()
+                : detectVolumeAnomalies(snapshot.recentTotal(), snapshot.previousTotal()));
 
-        // Check for new error patterns
-        anomalies.addAll(detectNewErrorPatterns());
+        // New error patterns are detected at ingest time by KnownTemplateRegistry
 
         return anomalies;
     }
 
     private List<Anomaly> detectErrorSpikes() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime oneHourAgo = now.minusHours(1);
-        LocalDateTime twoHoursAgo = now.minusHours(2);
-
-        // Query error logs from last hour
-        Criteria recentCriteria = new Criteria("timestamp")
-                .between(oneHourAgo.toInstant(ZoneOffset.UTC), now.toInstant(ZoneOffset.UTC))
-                .and("severity").in("ERROR", "FATAL");
-
-        SearchHits<Log> recentErrors = elasticsearchOperations.search(
-                new CriteriaQuery(recentCriteria), Log.class);
-
-        // Query error logs from previous hour
-        Criteria previousCriteria = new Criteria("timestamp")
-                .between(twoHoursAgo.toInstant(ZoneOffset.UTC), oneHourAgo.toInstant(ZoneOffset.UTC))
-                .and("severity").in("ERROR", "FATAL");
-
-        SearchHits<Log> previousErrors = elasticsearchOperations.search(
-                new CriteriaQuery(previousCriteria), Log.class);
+        // Read the streaming counters instead of querying the cluster
+        Instant end = Instant.now();
+        return detectErrorSpikes(
+                logRateWindow.count(end.minus(DETECTION_WINDOW), end, ERROR_SEVERITIES),
+                logRateWindow.count(end.minus(DETECTION_WINDOW.multipliedBy(2)), end.minus(DETECTION_WINDOW),
+                        ERROR_SEVERITIES));
+    }
 
-        long recentCount = recentErrors.getTotalHits();
-        long previousCount = previousErrors.getTotalHits();
+    private List<Anomaly> detectErrorSpikes(long recentCount, long previousCount) {
+        LocalDateTime now = LocalDateTime.now();
 
         // Detect spike (more than 50% increase and at least 10 errors)
         if (recentCount > previousCount * 1.5 && recentCount >= 10) {
@@ -103,25 +173,14 @@ public class AnomalyDetectionService {
     }
 
     private List<Anomaly> detectVolumeAnomalies() {
-        // Similar implementation for volume drops
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime oneHourAgo = now.minusHours(1);
-        LocalDateTime twoHoursAgo = now.minusHours(2);
-
-        Criteria recentCriteria = new Criteria("timestamp")
-                .between(oneHourAgo.toInstant(ZoneOffset.UTC), now.toInstant(ZoneOffset.UTC));
-
-        SearchHits<Log> recentLogs = elasticsearchOperations.search(
-                new CriteriaQuery(recentCriteria), Log.class);
-
-        Criteria previousCriteria = new Criteria("timestamp")
-                .between(twoHoursAgo.toInstant(ZoneOffset.UTC), oneHourAgo.toInstant(ZoneOffset.UTC));
-
-        SearchHits<Log> previousLogs = elasticsearchOperations.search(
-                new CriteriaQuery(previousCriteria), Log.class);
+        Instant end = Instant.now();
+        return detectVolumeAnomalies(
+                logRateWindow.count(end.minus(DETECTION_WINDOW), end),
+                logRateWindow.count(end.minus(DETECTION_WINDOW.multipliedBy(2)), end.minus(DETECTION_WINDOW)));
+    }
 
-        long recentCount = recentLogs.getTotalHits();
-        long previousCount = previousLogs.getTotalHits();
+    private List<Anomaly> detectVolumeAnomalies(long recentCount, long previousCount) {
+        LocalDateTime now = LocalDateTime.now();
 
         // Detect significant drop (more than 70% decrease and previous count > 50)
         if (previousCount > 50 && recentCount < previousCount * 0.3) {
@@ -145,90 +204,59 @@ public class AnomalyDetectionService {
         return new ArrayList<>();
     }
 
-    private List<Anomaly> detectNewErrorPatterns() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime oneHourAgo = now.minusHours(1);
-
-        Criteria criteria = new Criteria("timestamp")
-                .between(oneHourAgo.toInstant(ZoneOffset.UTC), now.toInstant(ZoneOffset.UTC))
-                .and("severity").in("ERROR", "FATAL");
-
-        SearchHits<Log> errorLogs = elasticsearchOperations.search(
-                new CriteriaQuery(criteria), Log.class);
-
-        // Group errors by message pattern
-        Map<String, Long> errorPatterns = errorLogs.getSearchHits().stream()
-                .map(hit -> hit.getContent().getMessage())
-                .collect(Collectors.groupingBy(
-                        message -> extractErrorPattern(message),
-                        Collectors.counting()));
-
-        List<Anomaly> anomalies = new ArrayList<>();
-        for (Map.Entry<String, Long> pattern : errorPatterns.entrySet()) {
-            if (pattern.getValue() >= 5) { // New pattern with at least 5 occurrences
-                Map<String, Object> metrics = new HashMap<>();
-                metrics.put("pattern", pattern.getKey());
-                metrics.put("occurrences", pattern.getValue());
-
-                anomalies.add(Anomaly.builder()
-                        .id(UUID.randomUUID().toString())
-                        .type("NEW_ERROR_PATTERN")
-                        .detectedAt(now)
-                        .severity("MEDIUM")
-                        .description(String.format("New error pattern detected: %s (%d occurrences)",
-                                pattern.getKey(), pattern.getValue()))
-                        .metrics(metrics)
-                        .confidence(0.70)
-                        .build());
-            }
-        }
-
-        return anomalies;
+    private void processAnomaliesWithAi(List<Anomaly> anomalies) {
+        CompletableFuture.allOf(anomalies.stream()
+                .map(this::processAnomalyWithAi)
+                .toArray(CompletableFuture[]::new)).join();
     }
 
-    private String extractErrorPattern(String message) {
-        // Simple pattern extraction - remove timestamps, IDs, and numbers
-        return message.replaceAll("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}", "[TIMESTAMP]")
-                .replaceAll("\\b\\d+\\b", "[NUMBER]")
-                .replaceAll("\\b[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}\\b",
-                        "[UUID]")
-                .replaceAll("\\s+", " ")
-                .trim();
-    }
+    private CompletableFuture<Void> processAnomalyWithAi(Anomaly anomaly) {
+        // Both AI calls run concurrently; an alert is still sent if either of them fails or times out
+        String key = anomalyKey(anomaly);
+        String summary = summarize(anomaly);
+        CompletableFuture<String> aiExplanation = aiEnrichmentExecutor.submit(
+                () -> aiAssistant.analyzeAnomaly(key, buildAnomalyPrompt(summary)));
+        CompletableFuture<String> suggestedAction = aiEnrichmentExecutor.submit(
+                () -> aiAssistant.suggestRootCause(key, summary));
 
-    private void processAnomalyWithAi(Anomaly anomaly) {
-        try {
-            String anomalyData = buildAnomalyPrompt(anomaly);
-            String aiExplanation = aiAssistant.analyzeAnomaly(anomalyData);
-            String suggestedAction = aiAssistant.suggestRootCause(anomaly.getDescription());
-
-            anomaly.setAiExplanation(aiExplanation);
-            anomaly.setSuggestedAction(suggestedAction);
+        return aiExplanation.thenAcceptBoth(suggestedAction, (explanation, action) -> {
+            anomaly.setAiExplanation(explanation);
+            anomaly.setSuggestedAction(action);
 
             // Send enhanced anomaly to Kafka for real-time alerts
             kafkaProducerService.sendAnomalyAlert(anomaly);
 
             log.info("AI-enhanced anomaly processed: {}", anomaly.getId());
-        } catch (Exception e) {
+        }).exceptionally(e -> {
             log.error("Error processing anomaly with AI: {}", e.getMessage(), e);
-        }
+            return null;
+        });
+    }
+
+    // The AI answers are cached per key, so the prompts hold only what the key covers. Counts, times and
+    // example messages differ between anomalies sharing a key; they stay in the alert's description and metrics.
+    private static String anomalyKey(Anomaly anomaly) {
+        return anomaly.getType() + ":" + Objects.toString(anomaly.getApplication(), "-") + ":"
+                + Objects.toString(templateId(anomaly), "-");
     }
 
-    private String buildAnomalyPrompt(Anomaly anomaly) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("Anomaly Type: ").append(anomaly.getType()).append("\n");
-        prompt.append("Detected At: ").append(anomaly.getDetectedAt()).append("\n");
-        prompt.append("Description: ").append(anomaly.getDescription()).append("\n");
-        prompt.append("Severity: ").append(anomaly.getSeverity()).append("\n");
-        prompt.append("Confidence: ").append(anomaly.getConfidence()).append("\n");
-
-        if (anomaly.getMetrics() != null) {
-            prompt.append("Metrics:\n");
-            anomaly.getMetrics()
-                    .forEach((key, value) -> prompt.append("- ").append(key).append(": ").append(value).append("\n"));
+    private static Object templateId(Anomaly anomaly) {
+        return anomaly.getMetrics() != null ? anomaly.getMetrics().get("template_id") : null;
+    }
+
+    private static String summarize(Anomaly anomaly) {
+        StringBuilder summary = new StringBuilder();
+        summary.append("Anomaly Type: ").append(anomaly.getType()).append("\n");
+        summary.append("Application: ").append(Objects.toString(anomaly.getApplication(), "all applications")).append("\n");
+        summary.append("Severity: ").append(anomaly.getSeverity()).append("\n");
+        if (templateId(anomaly) != null) {
+            summary.append("Error Pattern: ").append(anomaly.getMetrics().get("pattern")).append("\n");
         }
+        return summary.toString();
+    }
 
-        prompt.append("\nPlease analyze this anomaly and provide a clear explanation of what might be causing it.");
-        return prompt.toString();
+    private static String buildAnomalyPrompt(String summary) {
+        return summary + "\nPlease analyze this kind of anomaly and provide a clear explanation of what might be causing it. "
+                + "The exact counts are reported separately, so do not guess them.";
     }
 }
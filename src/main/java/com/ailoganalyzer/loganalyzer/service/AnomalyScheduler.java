@@ -18,4 +18,9 @@ public class AnomalyScheduler {
         anomalyDetectionService.analyzeRecentLogs();
         log.info("Completed scheduled anomaly detection");
     }
+
+    @Scheduled(fixedDelayString = "${loganalyzer.anomaly.window-check-interval-ms:10000}")
+    public void runWindowDetection() {
+        anomalyDetectionService.analyzeRateWindows();
+    }
 }
@@ -0,0 +1,117 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.DateHistogramBucket;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.json.JsonData;
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.IndicesOptions;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the single size-0 search that feeds every periodic anomaly detector.
+ * A per-minute date_histogram over the last two windows carries total and error counts.
+ * No documents are fetched, and the counts are exact whatever the volume.
+ */
+@Service
+@RequiredArgsConstructor
+public class DetectionQueryPlanner {
+
+    static final List<Severity> ERROR_SEVERITIES = List.of(Severity.ERROR, Severity.CRITICAL);
+
+    private static final String PER_MINUTE = "per_minute";
+    private static final String ERRORS = "errors";
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final LogIndexRouter logIndexRouter;
+
+    /**
+     * Inputs for all detectors, split into the window ending now and the window before it.
+     */
+    public record DetectionSnapshot(
+            long recentTotal,
+            long previousTotal,
+            long recentErrors,
+            long previousErrors) {
+    }
+
+    public DetectionSnapshot fetch(Duration window) {
+        Instant end = Instant.now();
+        Instant middle = end.minus(window);
+        Instant start = middle.minus(window);
+
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.bool(b -> b.filter(timestampBetween(start, end))))
+                .withAggregation(PER_MINUTE, Aggregation.of(a -> a
+                        .dateHistogram(h -> h
+                                .field("timestamp")
+                                .fixedInterval(t -> t.time("1m"))
+                                .minDocCount(0))
+                        .aggregations(ERRORS, Aggregation.of(e -> e.filter(errorSeverities())))))
+                .withMaxResults(0)
+                .withTrackTotalHits(false)
+                .withIndicesOptions(IndicesOptions.LENIENT_EXPAND_OPEN)
+                .build();
+
+        // Only the daily indices covering the two windows are searched
+        SearchHits<Log> hits = elasticsearchOperations.search(query, Log.class,
+                logIndexRouter.coordinatesFor(logIndexRouter.indicesFor(start, end)));
+        Map<String, Aggregate> aggregations = aggregationsOf(hits);
+
+        long recentTotal = 0;
+        long previousTotal = 0;
+        long recentErrors = 0;
+        long previousErrors = 0;
+        if (!aggregations.containsKey(PER_MINUTE)) {
+            return new DetectionSnapshot(0, 0, 0, 0); // none of the daily indices exist yet
+        }
+        for (DateHistogramBucket bucket : aggregations.get(PER_MINUTE).dateHistogram().buckets().array()) {
+            long errors = bucket.aggregations().get(ERRORS).filter().docCount();
+            if (bucket.key() >= middle.toEpochMilli()) {
+                recentTotal += bucket.docCount();
+                recentErrors += errors;
+            } else {
+                previousTotal += bucket.docCount();
+                previousErrors += errors;
+            }
+        }
+
+        return new DetectionSnapshot(recentTotal, previousTotal, recentErrors, previousErrors);
+    }
+
+    static Map<String, Aggregate> aggregationsOf(SearchHits<?> hits) {
+        Map<String, Aggregate> result = new HashMap<>();
+        ElasticsearchAggregations aggregations = (ElasticsearchAggregations) hits.getAggregations();
+        if (aggregations != null) {
+            aggregations.aggregationsAsMap().forEach((name, aggregation) ->
+                    result.put(name, aggregation.aggregation().getAggregate()));
+        }
+        return result;
+    }
+
+    private static Query timestampBetween(Instant from, Instant to) {
+        return Query.of(q -> q.range(r -> r
+                .field("timestamp")
+                .gte(JsonData.of(from.toString()))
+                .lt(JsonData.of(to.toString()))));
+    }
+
+    private static Query errorSeverities() {
+        List<FieldValue> values = ERROR_SEVERITIES.stream().map(s -> FieldValue.of(s.name())).toList();
+        return Query.of(q -> q.terms(t -> t.field("severity").terms(v -> v.value(values))));
+    }
+}
@@ -0,0 +1,12 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+/**
+ * Thrown when Elasticsearch could not take a bulk request at all: the cluster is unreachable, timed out or
+ * answered with 429 or a 5xx status. Nothing in the batch is wrong, so it should be retried as it is.
+ */
+public class IndexingUnavailableException extends RuntimeException {
+
+    public IndexingUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
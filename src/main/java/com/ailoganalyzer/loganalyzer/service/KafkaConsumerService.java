@@ -1,33 +1,81 @@
 package com.ailoganalyzer.loganalyzer.service;
 
-import com.ailoganalyzer.loganalyzer.graphql.subscription.LogSubscription;
 import com.ailoganalyzer.loganalyzer.model.Log;
-import com.ailoganalyzer.loganalyzer.repository.elasticsearch.LogElasticsearchRepository;
+import com.ailoganalyzer.loganalyzer.service.rollup.LogRollupAggregator;
+import com.ailoganalyzer.loganalyzer.service.template.KnownTemplateRegistry;
+import com.ailoganalyzer.loganalyzer.service.template.LogTemplateMiner;
+import com.ailoganalyzer.loganalyzer.service.template.LogTemplateMiner.TemplateMatch;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class KafkaConsumerService {
 
-    private final LogElasticsearchRepository elasticsearchRepository;
-    private final LogSubscription logSubscription;
+    private final LogIndexer logIndexer;
+    private final LogTemplateMiner logTemplateMiner;
+    private final KnownTemplateRegistry knownTemplateRegistry;
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final LogRollupAggregator logRollupAggregator;
 
+    /**
+     * Receives everything returned by one poll and indexes it with a single bulk request.
+     * Offsets are only acknowledged after the bulk call returns; if Elasticsearch could not take the
+     * request, the container's error handler redelivers the same batch.
+     */
     @KafkaListener(topics = "${spring.kafka.topic.name}", groupId = "${spring.kafka.consumer.group-id}")
-    public void consumeLog(Log logMessage) {
-        try {
-            log.info("Received log message: {}", logMessage);
-            elasticsearchRepository.save(logMessage);
-            log.info("Successfully saved log to Elasticsearch: {}", logMessage.getId());
-            
-            // Publish the log message to subscribers
-            logSubscription.publishLogAlert(logMessage);
-            log.info("Published log to subscribers: {}", logMessage.getId());
-        } catch (Exception e) {
-            log.error("Error processing log message: {}", e.getMessage(), e);
+    public void consumeLogs(List<ConsumerRecord<String, Log>> records, Acknowledgment acknowledgment) {
+        List<Log> logs = new ArrayList<>(records.size());
+        Map<Log, TemplateMatch> templates = new IdentityHashMap<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, Log> record = records.get(i);
+            Log logMessage = record.value();
+            if (logMessage == null) {
+                // Set to null by the ErrorHandlingDeserializer when the record is not a valid log
+                log.error("Skipping log record {}-{}@{} that could not be deserialized",
+                        record.topic(), record.partition(), record.offset());
+                continue;
+            }
+            try {
+                // Tag each log with its message template so patterns can be grouped with a terms aggregation
+                TemplateMatch template = logTemplateMiner.match(logMessage.getMessage());
+                logMessage.setTemplateId(template.templateId());
+                templates.put(logMessage, template);
+            } catch (RuntimeException e) {
+                // Lets the error handler commit the records before this one and skip only this one
+                throw new BatchListenerFailedException("Could not assign a template to log " + logMessage.getId(), e, i);
+            }
+            logs.add(logMessage);
+        }
+        log.debug("Received batch of {} log messages", logs.size());
+
+        List<Log> indexed = logIndexer.indexAll(logs);
+        log.info("Indexed {} of {} log messages in Elasticsearch", indexed.size(), logs.size());
+
+        acknowledgment.acknowledge();
+
+        // Per-minute counts for the dashboards, flushed to log_rollups every few seconds
+        logRollupAggregator.record(indexed);
+
+        // Flag error templates that have never been seen before, as soon as they arrive
+        for (Log logMessage : indexed) {
+            TemplateMatch template = templates.get(logMessage);
+            if (logMessage.getSeverity() != null
+                    && DetectionQueryPlanner.ERROR_SEVERITIES.contains(logMessage.getSeverity())
+                    && knownTemplateRegistry.observe(logMessage, template)) {
+                anomalyDetectionService.reportNewErrorTemplate(logMessage, template.template());
+            }
         }
     }
-} 
\ No newline at end of file
+}
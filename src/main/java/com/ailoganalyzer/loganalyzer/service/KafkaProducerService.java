@@ -6,9 +6,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 @Service
@@ -25,14 +25,22 @@ public class KafkaProducerService {
     @Value("${spring.kafka.topic.anomaly:anomaly-alerts}")
     private String anomalyTopicName;
 
-    public void sendLog(Log logMessage) {
-        try {
-            log.info("Sending log message to Kafka: {}", logMessage);
-            kafkaTemplate.send(topicName, logMessage);
-            log.info("Successfully sent log message to Kafka: {}", logMessage.getId());
-        } catch (Exception e) {
-            log.error("Error sending log message to Kafka: {}", e.getMessage(), e);
+    // Log field used as the record key; records with the same key land on the same partition in order
+    @Value("${spring.kafka.topic.key-field:application}")
+    private String keyField;
+
+    /**
+     * Sends the logs and completes once Kafka has acknowledged all of them, or exceptionally if any send failed.
+     * Logs with the same record key are sent in list order.
+     */
+    public CompletableFuture<Void> publishLogs(List<Log> logMessages) {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[logMessages.size()];
+        for (int i = 0; i < logMessages.size(); i++) {
+            Log logMessage = logMessages.get(i);
+            sends[i] = kafkaTemplate.send(topicName, keyFor(logMessage), logMessage);
         }
+        kafkaTemplate.flush();
+        return CompletableFuture.allOf(sends);
     }
 
     public void sendAnomalyAlert(Anomaly anomaly) {
@@ -44,4 +52,13 @@ public class KafkaProducerService {
             log.error("Error sending anomaly alert to Kafka: {}", e.getMessage(), e);
         }
     }
+
+    public String keyFor(Log logMessage) {
+        return switch (keyField) {
+            case "host" -> logMessage.getHost();
+            case "source" -> logMessage.getSource();
+            case "none" -> null;
+            default -> logMessage.getApplication();
+        };
+    }
 }
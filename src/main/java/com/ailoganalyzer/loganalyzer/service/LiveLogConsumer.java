@@ -0,0 +1,44 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import com.ailoganalyzer.loganalyzer.graphql.subscription.LogSubscriptionRouter;
+import com.ailoganalyzer.loganalyzer.model.Log;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Feeds this instance's live subscriptions and rate counters. Indexing is shared across the consumer group
+ * in {@link KafkaConsumerService}, but this listener runs in a group of its own on every instance, so each
+ * node sees every log no matter which node a subscriber is connected to.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LiveLogConsumer {
+
+    private final LogSubscriptionRouter logSubscriptionRouter;
+    private final LogRateWindow logRateWindow;
+
+    @KafkaListener(id = "live-logs", idIsGroup = false, topics = "${spring.kafka.topic.name}",
+            containerFactory = "liveListenerContainerFactory",
+            autoStartup = "${loganalyzer.live.enabled:true}")
+    public void consumeLogs(List<ConsumerRecord<String, Log>> records) {
+        for (ConsumerRecord<String, Log> record : records) {
+            Log logMessage = record.value();
+            if (logMessage == null) {
+                continue;
+            }
+            // Feed the streaming counters used by the rate-based anomaly detectors
+            logRateWindow.record(logMessage);
+            try {
+                logSubscriptionRouter.publish(logMessage);
+            } catch (Exception e) {
+                log.error("Error publishing log {} to subscribers: {}", logMessage.getId(), e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.DateHistogramBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.FieldDateMath;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsAggregate;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.ailoganalyzer.loganalyzer.dto.HistogramBucket;
+import com.ailoganalyzer.loganalyzer.dto.LogHistogram;
+import com.ailoganalyzer.loganalyzer.dto.TermCount;
+import com.ailoganalyzer.loganalyzer.dto.TopValues;
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import com.ailoganalyzer.loganalyzer.service.query.LogQuery;
+import com.ailoganalyzer.loganalyzer.service.query.LogQueryCompiler;
+import com.ailoganalyzer.loganalyzer.service.rollup.LogStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.IndicesOptions;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Histograms, top values and facets over the logs matching a filter, computed as size-0 aggregations.
+ * Only bucket keys and counts come back from Elasticsearch, never documents.
+ */
+@Service
+@RequiredArgsConstructor
+public class LogAggregationService {
+
+    private static final String HISTOGRAM = "histogram";
+    private static final String SEVERITIES = "severities";
+
+    public enum LogField {
+        APPLICATION("application"), SEVERITY("severity"), HOST("host"), SOURCE("source"), TEMPLATE("templateId");
+
+        private final String field;
+
+        LogField(String field) {
+            this.field = field;
+        }
+    }
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final LogIndexRouter logIndexRouter;
+    private final LogQueryCompiler logQueryCompiler;
+
+    // Target bucket count when Elasticsearch picks the histogram interval
+    @Value("${loganalyzer.aggregations.histogram-buckets:100}")
+    private int histogramBuckets;
+
+    // Limit for an explicit histogram interval over the requested range
+    @Value("${loganalyzer.aggregations.max-buckets:10000}")
+    private int maxBuckets;
+
+    @Value("${loganalyzer.aggregations.max-size:1000}")
+    private int maxSize;
+
+    /**
+     * Log counts over time, with a count per severity in each bucket. Without an interval, Elasticsearch
+     * picks one giving about histogram-buckets buckets for the data matched. An explicit interval may give
+     * at most max-buckets buckets over the range, which runs from the oldest index for a query without a
+     * start time and up to now for one without an end time.
+     */
+    public LogHistogram histogram(LogQuery logQuery, String interval) {
+        long seconds = interval != null ? LogStatsService.intervalSeconds(interval) : 0;
+        List<String> indices = logIndexRouter.indicesFor(logQuery.getStartTime(), logQuery.getEndTime());
+        if (indices.isEmpty()) {
+            return new LogHistogram(interval, List.of());
+        }
+        Aggregation severities = Aggregation.of(a -> a.terms(t -> t.field("severity").size(Severity.values().length)));
+        Aggregation histogram;
+        if (interval != null) {
+            Instant from = logQuery.getStartTime() != null
+                    ? logQuery.getStartTime() : logIndexRouter.dayOf(indices.get(indices.size() - 1));
+            Instant to = logQuery.getEndTime() != null ? logQuery.getEndTime() : Instant.now();
+            long bucketCount = Math.floorDiv(to.getEpochSecond(), seconds) - Math.floorDiv(from.getEpochSecond(), seconds) + 1;
+            if (bucketCount > maxBuckets) {
+                throw new IllegalArgumentException("Interval " + interval + " gives " + bucketCount +
+                        " buckets for this range; the limit is " + maxBuckets);
+            }
+            // Hard bounds keep buckets for out-of-range timestamps from exceeding the count checked above
+            histogram = Aggregation.of(a -> a
+                    .dateHistogram(h -> h.field("timestamp").fixedInterval(t -> t.time(seconds + "s"))
+                            .hardBounds(b -> b
+                                    .min(FieldDateMath.of(m -> m.value((double) from.toEpochMilli())))
+                                    .max(FieldDateMath.of(m -> m.value((double) to.toEpochMilli())))))
+                    .aggregations(SEVERITIES, severities));
+        } else {
+            histogram = Aggregation.of(a -> a
+                    .autoDateHistogram(h -> h.field("timestamp").buckets(histogramBuckets))
+                    .aggregations(SEVERITIES, severities));
+        }
+
+        Map<String, Aggregate> aggregations = aggregate(logQuery, indices, Map.of(HISTOGRAM, histogram));
+        if (!aggregations.containsKey(HISTOGRAM)) {
+            return new LogHistogram(interval, List.of());
+        }
+        Aggregate aggregate = aggregations.get(HISTOGRAM);
+        List<DateHistogramBucket> buckets;
+        String bucketInterval = interval;
+        if (aggregate.isAutoDateHistogram()) {
+            buckets = aggregate.autoDateHistogram().buckets().array();
+            bucketInterval = aggregate.autoDateHistogram().interval().time();
+        } else {
+            buckets = aggregate.dateHistogram().buckets().array();
+        }
+
+        List<HistogramBucket> result = new ArrayList<>(buckets.size());
+        for (DateHistogramBucket bucket : buckets) {
+            result.add(new HistogramBucket(Instant.ofEpochMilli(bucket.key()), bucket.docCount(),
+                    termCounts(bucket.aggregations().get(SEVERITIES).sterms())));
+        }
+        return new LogHistogram(bucketInterval, result);
+    }
+
+    /**
+     * The most frequent values of one field.
+     */
+    public TopValues topValues(LogField field, LogQuery logQuery, int size) {
+        return facets(List.of(field), logQuery, size).get(0);
+    }
+
+    /**
+     * The most frequent values of several fields, all from one search.
+     */
+    public List<TopValues> facets(List<LogField> fields, LogQuery logQuery, int size) {
+        if (size < 1 || size > maxSize) {
+            throw new IllegalArgumentException("size must be between 1 and " + maxSize);
+        }
+        Map<String, Aggregation> terms = new LinkedHashMap<>();
+        for (LogField field : fields) {
+            terms.put(field.name(), Aggregation.of(a -> a.terms(t -> t.field(field.field).size(size))));
+        }
+
+        // Only the daily indices overlapping the requested time range are searched
+        List<String> indices = logIndexRouter.indicesFor(logQuery.getStartTime(), logQuery.getEndTime());
+        Map<String, Aggregate> aggregations = aggregate(logQuery, indices, terms);
+        List<TopValues> result = new ArrayList<>(fields.size());
+        for (LogField field : fields) {
+            Aggregate aggregate = aggregations.get(field.name());
+            if (aggregate == null) {
+                result.add(new TopValues(field.name(), List.of(), 0));
+                continue;
+            }
+            StringTermsAggregate values = aggregate.sterms();
+            result.add(new TopValues(field.name(), termCounts(values),
+                    values.sumOtherDocCount() != null ? values.sumOtherDocCount() : 0));
+        }
+        return result;
+    }
+
+    private Map<String, Aggregate> aggregate(LogQuery logQuery, List<String> indices, Map<String, Aggregation> aggregations) {
+        if (indices.isEmpty()) {
+            return Map.of();
+        }
+        Query query = logQueryCompiler.compile(logQuery);
+        NativeQueryBuilder queryBuilder = NativeQuery.builder()
+                .withQuery(query)
+                .withMaxResults(0)
+                .withTrackTotalHits(false)
+                .withIndicesOptions(IndicesOptions.LENIENT_EXPAND_OPEN);
+        aggregations.forEach(queryBuilder::withAggregation);
+        SearchHits<Log> hits = elasticsearchOperations.search(queryBuilder.build(), Log.class,
+                logIndexRouter.coordinatesFor(indices));
+        return DetectionQueryPlanner.aggregationsOf(hits);
+    }
+
+    private static List<TermCount> termCounts(StringTermsAggregate terms) {
+        return terms.buckets().array().stream()
+                .map(bucket -> new TermCount(bucket.key().stringValue(), bucket.docCount()))
+                .toList();
+    }
+}
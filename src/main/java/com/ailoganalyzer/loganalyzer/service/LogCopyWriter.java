@@ -0,0 +1,147 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Loads batches of logs into PostgreSQL with COPY instead of INSERTs. IDs are taken from logs_seq in
+ * blocks the same way Hibernate's pooled optimizer takes them, so both write paths can be used side by side.
+ * Runs on the connection of the surrounding transaction, so the rows commit or roll back with it.
+ */
+@Component
+@RequiredArgsConstructor
+public class LogCopyWriter {
+
+    private static final String COPY_SQL = "COPY logs (id, timestamp, application, message, severity, source, host, metadata) " +
+            "FROM STDIN WITH (FORMAT csv)";
+
+    // Must match the allocationSize of logs_seq on Log
+    private static final int ID_BLOCK_SIZE = 50;
+
+    // Bytes buffered before they are handed to the COPY stream
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Assigns IDs to the logs and copies them into the logs table. Returns the same list.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Log> copyAll(List<Log> logs) {
+        Deque<Long> ids = allocateIds(logs.size());
+        for (Log logEntry : logs) {
+            logEntry.setId(ids.removeFirst());
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            try {
+                StringBuilder buffer = new StringBuilder(WRITE_BUFFER_SIZE);
+                for (Log logEntry : logs) {
+                    appendRow(buffer, logEntry);
+                    if (buffer.length() >= WRITE_BUFFER_SIZE) {
+                        write(copyIn, buffer);
+                    }
+                }
+                write(copyIn, buffer);
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        } catch (SQLException e) {
+            // Translated like JdbcTemplate's errors, so a rejected row and a lost connection stay apart
+            DataAccessException translated = jdbcTemplate.getExceptionTranslator().translate("COPY into logs", COPY_SQL, e);
+            throw translated != null ? translated : new UncategorizedSQLException("COPY into logs", COPY_SQL, e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        return logs;
+    }
+
+    private Deque<Long> allocateIds(int count) {
+        Deque<Long> ids = new ArrayDeque<>(count);
+        while (ids.size() < count) {
+            int blocks = (count - ids.size() + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+            List<Long> highs = jdbcTemplate.queryForList(
+                    "SELECT nextval('logs_seq') FROM generate_series(1, ?)", Long.class, blocks);
+            for (long high : highs) {
+                // Each value is the top of a block of ID_BLOCK_SIZE IDs; a fresh sequence starts below 1
+                for (long id = Math.max(1, high - ID_BLOCK_SIZE + 1); id <= high && ids.size() < count; id++) {
+                    ids.addLast(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void appendRow(StringBuilder buffer, Log logEntry) {
+        buffer.append(logEntry.getId()).append(',');
+        appendValue(buffer, logEntry.getTimestamp() != null ? logEntry.getTimestamp().toString() : null).append(',');
+        appendValue(buffer, logEntry.getApplication()).append(',');
+        appendValue(buffer, logEntry.getMessage()).append(',');
+        appendValue(buffer, logEntry.getSeverity() != null ? logEntry.getSeverity().name() : null).append(',');
+        appendValue(buffer, logEntry.getSource()).append(',');
+        appendValue(buffer, logEntry.getHost()).append(',');
+        appendValue(buffer, metadataJson(logEntry)).append('\n');
+    }
+
+    // Unquoted empty is NULL in CSV COPY; everything else is quoted with quotes doubled
+    private StringBuilder appendValue(StringBuilder buffer, String value) {
+        if (value == null) {
+            return buffer;
+        }
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        return buffer.append('"');
+    }
+
+    private String metadataJson(Log logEntry) {
+        if (logEntry.getMetadata() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(logEntry.getMetadata());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialize metadata of log " + logEntry.getId(), e);
+        }
+    }
+
+    private void write(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,160 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.indices.resolve_index.ResolveIndexItem;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Routes logs to daily indices named logs-yyyy.MM.dd after their event timestamp, and narrows searches
+ * to the daily indices that overlap a time range. Index names sort in date order, so the set of existing
+ * indices is kept as a sorted set, refreshed from the cluster periodically and whenever an index is created.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LogIndexRouter {
+
+    public static final String INDEX_PREFIX = "logs-";
+    public static final String INDEX_PATTERN = INDEX_PREFIX + "*";
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyy.MM.dd").withZone(ZoneOffset.UTC);
+    private static final Pattern DAILY_INDEX = Pattern.compile(Pattern.quote(INDEX_PREFIX) + "\\d{4}\\.\\d{2}\\.\\d{2}");
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchClient elasticsearchClient;
+    private final LogIndexTemplateManager templateManager;
+
+    private final ConcurrentSkipListSet<String> existingIndices = new ConcurrentSkipListSet<>();
+
+    // Above this many indices a search names the wildcard pattern instead of listing them in the URL
+    @Value("${loganalyzer.indices.max-explicit-indices:60}")
+    private int maxExplicitIndices;
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${loganalyzer.indices.refresh-interval-ms:60000}")
+    public void refreshExistingIndices() {
+        try {
+            Set<String> found = elasticsearchClient.indices().resolveIndex(r -> r.name(INDEX_PATTERN))
+                    .indices().stream()
+                    .map(ResolveIndexItem::name)
+                    .filter(name -> DAILY_INDEX.matcher(name).matches())
+                    .collect(Collectors.toSet());
+            existingIndices.addAll(found);
+            existingIndices.retainAll(found);
+        } catch (Exception e) {
+            log.warn("Could not list log indices: {}", e.getMessage());
+        }
+    }
+
+    public String indexFor(Instant timestamp) {
+        return INDEX_PREFIX + DAY.format(timestamp != null ? timestamp : Instant.now());
+    }
+
+    /**
+     * Start of the UTC day held by a daily index.
+     */
+    public Instant dayOf(String indexName) {
+        return LocalDate.parse(indexName.substring(INDEX_PREFIX.length()), DAY).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    /**
+     * Creates the index unless it is already known to exist. Settings and mapping come from the logs index template.
+     */
+    public void ensureIndex(String indexName) {
+        if (existingIndices.contains(indexName)) {
+            return;
+        }
+        synchronized (this) {
+            if (existingIndices.contains(indexName)) {
+                return;
+            }
+            templateManager.ensureInstalled();
+            IndexOperations indexOperations = elasticsearchOperations.indexOps(IndexCoordinates.of(indexName));
+            if (!indexOperations.exists()) {
+                try {
+                    indexOperations.create();
+                    log.info("Created log index {}", indexName);
+                } catch (RuntimeException e) {
+                    // Another instance may have created it first
+                    if (!indexOperations.exists()) {
+                        throw e;
+                    }
+                }
+            }
+            existingIndices.add(indexName);
+        }
+    }
+
+    /**
+     * Existing daily indices that can hold logs between {@code from} and {@code to}, newest first.
+     * Either bound may be null for an open-ended range.
+     */
+    public List<String> indicesFor(Instant from, Instant to) {
+        String first = from != null ? indexFor(from) : INDEX_PREFIX;
+        String last = to != null ? indexFor(to) : INDEX_PREFIX + Character.MAX_VALUE;
+        if (first.compareTo(last) > 0) {
+            return List.of();
+        }
+        NavigableSet<String> overlapping = existingIndices.subSet(first, true, last, true).descendingSet();
+        List<String> indices = new ArrayList<>(overlapping);
+
+        // Today's index may have been created by another instance since the last refresh
+        String today = indexFor(Instant.now());
+        if (first.compareTo(today) <= 0 && last.compareTo(today) >= 0 && !indices.contains(today)) {
+            indices.add(0, today);
+        }
+        return indices;
+    }
+
+    /**
+     * Deletes the daily indices for days before {@code cutoff}. Returns the deleted index names.
+     */
+    public List<String> deleteIndicesBefore(LocalDate cutoff) {
+        refreshExistingIndices();
+        List<String> expired = new ArrayList<>(existingIndices.headSet(INDEX_PREFIX + DAY.format(cutoff.atStartOfDay(ZoneOffset.UTC))));
+        if (expired.isEmpty()) {
+            return expired;
+        }
+        try {
+            elasticsearchClient.indices().delete(d -> d.index(expired).ignoreUnavailable(true));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete expired log indices", e);
+        }
+        expired.forEach(existingIndices::remove);
+        log.info("Deleted expired log indices {}", expired);
+        return expired;
+    }
+
+    /**
+     * Coordinates for searching the given indices, falling back to the wildcard pattern for long lists.
+     * Searches should use lenient indices options, since an index may be deleted between refreshes.
+     */
+    public IndexCoordinates coordinatesFor(List<String> indices) {
+        if (indices.size() > maxExplicitIndices) {
+            return IndexCoordinates.of(INDEX_PATTERN);
+        }
+        return IndexCoordinates.of(indices.toArray(String[]::new));
+    }
+}
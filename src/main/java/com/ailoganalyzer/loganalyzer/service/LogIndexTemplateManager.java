@@ -0,0 +1,195 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexTemplate;
+import co.elastic.clients.elasticsearch.indices.SegmentSortOrder;
+import co.elastic.clients.json.JsonData;
+import com.ailoganalyzer.loganalyzer.model.Log;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
+/**
+ * Owns the logs index template, which every daily index picks up when it is created: the Log mapping,
+ * index sorting on timestamp descending, best_compression, and the configured shards, replicas and
+ * refresh interval. The template is (re)installed when it is missing, has an older version, or its
+ * contents no longer match this application's configuration.
+ *
+ * Bulk-load mode turns refresh off and drops replicas on all log indices for the duration of a
+ * large backfill, and restores the configured values afterwards. The mode is kept in the cluster rather
+ * than in this process: while it is on, the template itself carries the bulk-load settings and a bulk_load
+ * flag in its metadata. Indices created meanwhile by any instance get the bulk-load settings, and the
+ * mode survives restarts until it is switched off.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LogIndexTemplateManager {
+
+    public static final String TEMPLATE_NAME = "logs";
+
+    // Bump when the template layout changes in a way the checksum would not catch
+    private static final long TEMPLATE_VERSION = 1;
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    @Value("${loganalyzer.indices.shards:1}")
+    private int shards;
+
+    @Value("${loganalyzer.indices.replicas:1}")
+    private int replicas;
+
+    @Value("${loganalyzer.indices.refresh-interval:1s}")
+    private String refreshInterval;
+
+    private volatile boolean installed;
+
+    @PostConstruct
+    void install() {
+        try {
+            ensureInstalled();
+        } catch (RuntimeException e) {
+            // Retried before the next index is created
+            log.error("Could not install the {} index template: {}", TEMPLATE_NAME, e.getMessage());
+        }
+    }
+
+    public void ensureInstalled() {
+        if (installed) {
+            return;
+        }
+        synchronized (this) {
+            if (installed) {
+                return;
+            }
+            try {
+                IndexTemplate existing = existingTemplate();
+                String checksum = checksum();
+                if (existing != null && existing.version() != null && existing.version() >= TEMPLATE_VERSION
+                        && checksum.equals(metaString(existing, "checksum"))) {
+                    installed = true;
+                    return;
+                }
+                // A bulk load in progress stays on across a template upgrade
+                putTemplate(existing != null && isBulkLoad(existing));
+                installed = true;
+                log.info("Installed index template {} (version {}, checksum {})", TEMPLATE_NAME, TEMPLATE_VERSION, checksum);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not install index template " + TEMPLATE_NAME, e);
+            }
+        }
+    }
+
+    public boolean isBulkLoading() {
+        try {
+            IndexTemplate existing = existingTemplate();
+            return existing != null && isBulkLoad(existing);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read index template " + TEMPLATE_NAME, e);
+        }
+    }
+
+    public synchronized void startBulkLoad() {
+        try {
+            putTemplate(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not switch index template " + TEMPLATE_NAME + " to bulk load", e);
+        }
+        installed = true;
+        applyBulkLoadSettings(LogIndexRouter.INDEX_PATTERN);
+        log.info("Bulk-load mode on: refresh disabled and replicas set to 0 on {}", LogIndexRouter.INDEX_PATTERN);
+    }
+
+    public synchronized void finishBulkLoad() {
+        try {
+            putTemplate(false);
+            installed = true;
+            elasticsearchClient.indices().putSettings(p -> p
+                    .index(LogIndexRouter.INDEX_PATTERN)
+                    .settings(s -> s
+                            .refreshInterval(t -> t.time(refreshInterval))
+                            .numberOfReplicas(String.valueOf(replicas))));
+            // Make everything loaded so far searchable straight away
+            elasticsearchClient.indices().refresh(r -> r.index(LogIndexRouter.INDEX_PATTERN));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not restore index settings after bulk load", e);
+        }
+        log.info("Bulk-load mode off: refresh interval {} and {} replicas restored", refreshInterval, replicas);
+    }
+
+    private IndexSettings settings(boolean bulkLoad) {
+        return IndexSettings.of(s -> s
+                .numberOfShards(String.valueOf(shards))
+                .numberOfReplicas(bulkLoad ? "0" : String.valueOf(replicas))
+                .refreshInterval(t -> t.time(bulkLoad ? "-1" : refreshInterval))
+                .codec("best_compression")
+                .sort(sort -> sort.field("timestamp").order(SegmentSortOrder.Desc)));
+    }
+
+    // The Log mapping from its annotations, plus what Spring Data leaves out of it: the id, which is only in
+    // _source otherwise, and enabled: false on metadata, which it drops for a property of an entity type
+    private TypeMapping mapping() {
+        String mappingJson = elasticsearchOperations.indexOps(Log.class).createMapping(Log.class).toJson();
+        return TypeMapping.of(tm -> tm
+                .withJson(new StringReader(mappingJson))
+                .properties("id", p -> p.long_(l -> l))
+                .properties("metadata", p -> p.object(o -> o.enabled(false))));
+    }
+
+    // Of the configured template, so it is the same whether or not a bulk load is on
+    private String checksum() {
+        return Integer.toHexString((mapping().toString() + settings(false)).hashCode());
+    }
+
+    private void putTemplate(boolean bulkLoad) throws IOException {
+        elasticsearchClient.indices().putIndexTemplate(t -> t
+                .name(TEMPLATE_NAME)
+                .indexPatterns(LogIndexRouter.INDEX_PATTERN)
+                .version(TEMPLATE_VERSION)
+                .meta("checksum", JsonData.of(checksum()))
+                .meta("bulk_load", JsonData.of(bulkLoad))
+                .template(m -> m
+                        .settings(settings(bulkLoad))
+                        .mappings(mapping())));
+    }
+
+    private IndexTemplate existingTemplate() throws IOException {
+        if (!elasticsearchClient.indices().existsIndexTemplate(e -> e.name(TEMPLATE_NAME)).value()) {
+            return null;
+        }
+        return elasticsearchClient.indices().getIndexTemplate(g -> g.name(TEMPLATE_NAME))
+                .indexTemplates().get(0).indexTemplate();
+    }
+
+    private static boolean isBulkLoad(IndexTemplate template) {
+        JsonData bulkLoad = template.meta().get("bulk_load");
+        return bulkLoad != null && Boolean.TRUE.equals(bulkLoad.to(Boolean.class));
+    }
+
+    private static String metaString(IndexTemplate template, String key) {
+        JsonData value = template.meta().get(key);
+        return value != null ? value.to(String.class) : null;
+    }
+
+    private void applyBulkLoadSettings(String indices) {
+        try {
+            elasticsearchClient.indices().putSettings(p -> p
+                    .index(indices)
+                    .settings(s -> s
+                            .refreshInterval(t -> t.time("-1"))
+                            .numberOfReplicas("0")));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not apply bulk-load settings to " + indices, e);
+        }
+    }
+}
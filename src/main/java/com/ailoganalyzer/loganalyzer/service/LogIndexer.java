@@ -0,0 +1,130 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import com.ailoganalyzer.loganalyzer.model.Log;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.UncategorizedElasticsearchException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes batches of logs to Elasticsearch with the _bulk API.
+ * Failed items are retried or dropped one by one, so a single bad document never fails the whole batch.
+ * Request-level failures (cluster unreachable, timeouts, 429 or 5xx for the whole request) are rethrown as
+ * {@link IndexingUnavailableException} so the caller can retry the batch.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LogIndexer {
+
+    // Elasticsearch rejects items with 429 when its write queue is full; those are worth retrying
+    private static final int STATUS_TOO_MANY_REQUESTS = 429;
+    private static final int STATUS_SERVER_ERROR = 500;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final LogIndexRouter logIndexRouter;
+
+    @Value("${loganalyzer.indexing.item-retries:3}")
+    private int itemRetries;
+
+    @Value("${loganalyzer.indexing.item-retry-backoff-ms:200}")
+    private long itemRetryBackoffMs;
+
+    /**
+     * Indexes the given logs and returns the ones that ended up in Elasticsearch.
+     */
+    public List<Log> indexAll(List<Log> logs) {
+        Map<String, Log> pending = new LinkedHashMap<>();
+        for (Log logEntry : logs) {
+            pending.put(String.valueOf(logEntry.getId()), logEntry);
+        }
+
+        List<Log> indexed = new ArrayList<>(logs.size());
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            Map<String, BulkFailureException.FailureDetails> failures = bulkIndex(pending.values());
+
+            Map<String, Log> retry = new LinkedHashMap<>();
+            for (Map.Entry<String, Log> entry : pending.entrySet()) {
+                BulkFailureException.FailureDetails failure = failures.get(entry.getKey());
+                if (failure == null) {
+                    indexed.add(entry.getValue());
+                } else if (isRetryable(failure) && attempt < itemRetries) {
+                    retry.put(entry.getKey(), entry.getValue());
+                } else {
+                    log.error("Dropping log {} after failed indexing (status {}): {}",
+                            entry.getKey(), failure.status(), failure.errorMessage());
+                }
+            }
+
+            if (!retry.isEmpty()) {
+                log.warn("Retrying {} rejected bulk items (attempt {})", retry.size(), attempt + 1);
+                sleep(itemRetryBackoffMs * (attempt + 1));
+            }
+            pending = retry;
+        }
+
+        return indexed;
+    }
+
+    private Map<String, BulkFailureException.FailureDetails> bulkIndex(Iterable<Log> logs) {
+        List<IndexQuery> queries = new ArrayList<>();
+        Set<String> indices = new HashSet<>();
+        for (Log logEntry : logs) {
+            // Each log goes to the daily index of its own timestamp, so late arrivals land in the right day
+            String index = logIndexRouter.indexFor(logEntry.getTimestamp());
+            indices.add(index);
+            if (logEntry.getMetadata() != null) {
+                logEntry.setMetadataPairs(logEntry.getMetadata().stream()
+                        .map(field -> Log.metadataPair(field.getKey(), field.getValue()))
+                        .toList());
+            }
+            queries.add(new IndexQueryBuilder()
+                    .withId(String.valueOf(logEntry.getId()))
+                    .withObject(logEntry)
+                    .withIndex(index)
+                    .build());
+        }
+        try {
+            indices.forEach(logIndexRouter::ensureIndex);
+            elasticsearchOperations.bulkIndex(queries, Log.class);
+            return Map.of();
+        } catch (BulkFailureException e) {
+            return e.getFailedDocuments();
+        } catch (DataAccessResourceFailureException e) {
+            throw new IndexingUnavailableException("Elasticsearch is unreachable: " + e.getMessage(), e);
+        } catch (UncategorizedElasticsearchException e) {
+            if (e.getStatusCode() != null
+                    && (e.getStatusCode() == STATUS_TOO_MANY_REQUESTS || e.getStatusCode() >= STATUS_SERVER_ERROR)) {
+                throw new IndexingUnavailableException("Elasticsearch rejected the bulk request with status "
+                        + e.getStatusCode() + ": " + e.getMessage(), e);
+            }
+            throw e;
+        }
+    }
+
+    private boolean isRetryable(BulkFailureException.FailureDetails failure) {
+        return failure.status() != null && failure.status() == STATUS_TOO_MANY_REQUESTS;
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying bulk items", e);
+        }
+    }
+}
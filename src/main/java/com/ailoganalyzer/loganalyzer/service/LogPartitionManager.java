@@ -0,0 +1,102 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the daily partitions of the logs table (logs_pYYYYMMDD) created ahead of time, so inserts never
+ * fall into the default partition, and drops whole partitions for retention. Does nothing when the logs
+ * table is not partitioned, for example on a database set up before partitioning was introduced.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LogPartitionManager {
+
+    private static final String PARTITION_PREFIX = "logs_p";
+    private static final DateTimeFormatter PARTITION_DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${loganalyzer.storage.partitions-ahead-days:7}")
+    private int partitionsAheadDays;
+
+    // Partitions for a few past days too, for late logs arriving after a restart
+    @Value("${loganalyzer.storage.partitions-behind-days:2}")
+    private int partitionsBehindDays;
+
+    private volatile Boolean partitioned;
+
+    @PostConstruct
+    @Scheduled(cron = "${loganalyzer.storage.partition-maintenance-cron:0 5 * * * *}")
+    public void createUpcomingPartitions() {
+        try {
+            if (!isPartitioned()) {
+                return;
+            }
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+            for (int day = -partitionsBehindDays; day <= partitionsAheadDays; day++) {
+                createPartition(today.plusDays(day));
+            }
+        } catch (Exception e) {
+            log.warn("Could not create log partitions: {}", e.getMessage());
+        }
+    }
+
+    public boolean isPartitioned() {
+        if (partitioned == null) {
+            partitioned = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid " +
+                            "WHERE c.relname = 'logs' AND c.relnamespace = current_schema()::regnamespace)",
+                    Boolean.class);
+            if (!partitioned) {
+                log.info("The logs table is not partitioned; partition maintenance is off");
+            }
+        }
+        return partitioned;
+    }
+
+    private void createPartition(LocalDate day) {
+        String name = PARTITION_PREFIX + PARTITION_DAY.format(day);
+        // Bounds are UTC midnights; timestamp is TIMESTAMPTZ
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF logs " +
+                "FOR VALUES FROM ('" + day + " 00:00:00+00') TO ('" + day.plusDays(1) + " 00:00:00+00')");
+    }
+
+    /**
+     * Drops the daily partitions holding only logs from before {@code cutoff}. Returns the dropped partition names.
+     */
+    public List<String> dropPartitionsBefore(LocalDate cutoff) {
+        if (!isPartitioned()) {
+            return List.of();
+        }
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = 'logs' AND c.relname ~ '^logs_p[0-9]{8}$'",
+                String.class);
+        String cutoffName = PARTITION_PREFIX + PARTITION_DAY.format(cutoff);
+        List<String> dropped = new ArrayList<>();
+        for (String partition : partitions) {
+            // Names sort in date order
+            if (partition.compareTo(cutoffName) < 0) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                dropped.add(partition);
+            }
+        }
+        if (!dropped.isEmpty()) {
+            log.info("Dropped log partitions {}", dropped);
+        }
+        return dropped;
+    }
+}
@@ -0,0 +1,114 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory per-minute log counters, total and by severity, fed from the Kafka consume path.
+ * Minutes live in a fixed ring of buckets. A slot is recycled with a compare-and-set when a newer
+ * minute arrives, and increments go to striped {@link LongAdder}s, so recording never takes a lock.
+ */
+@Component
+public class LogRateWindow {
+
+    private static final long MINUTE_MILLIS = Duration.ofMinutes(1).toMillis();
+
+    private final AtomicReferenceArray<MinuteBucket> buckets;
+    private final long startedMinute;
+
+    public LogRateWindow(@Value("${loganalyzer.anomaly.window-minutes:180}") int windowMinutes) {
+        this.buckets = new AtomicReferenceArray<>(windowMinutes);
+        this.startedMinute = minuteOf(Instant.now());
+    }
+
+    public void record(Log logEntry) {
+        long now = minuteOf(Instant.now());
+        // Clock-skewed timestamps from the future are counted in the current minute
+        long minute = logEntry.getTimestamp() != null ? Math.min(minuteOf(logEntry.getTimestamp()), now) : now;
+        MinuteBucket bucket = bucketFor(minute);
+        if (bucket == null) {
+            return; // older than the window
+        }
+        bucket.total.increment();
+        if (logEntry.getSeverity() != null) {
+            bucket.bySeverity[logEntry.getSeverity().ordinal()].increment();
+        }
+    }
+
+    /**
+     * Number of logs in the whole minutes after the one containing {@code from}, up to and including the
+     * (partial) minute containing {@code to}, optionally restricted to the given severities.
+     * Adjacent calls such as (t-2h, t-1h) and (t-1h, t) therefore never count a minute twice.
+     */
+    public long count(Instant from, Instant to, Severity... severities) {
+        long total = 0;
+        for (long minute = minuteOf(from) + 1; minute <= minuteOf(to); minute++) {
+            MinuteBucket bucket = buckets.get(slotOf(minute));
+            if (bucket == null || bucket.minute != minute) {
+                continue;
+            }
+            if (severities.length == 0) {
+                total += bucket.total.sum();
+            } else {
+                for (Severity severity : severities) {
+                    total += bucket.bySeverity[severity.ordinal()].sum();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * True once this instance has been counting for at least the given span and the span fits in the ring,
+     * i.e. counts over the last {@code span} are complete rather than starting from an empty window.
+     */
+    public boolean covers(Duration span) {
+        long minutes = span.toMinutes();
+        return minutes <= buckets.length() && minuteOf(Instant.now()) - startedMinute >= minutes;
+    }
+
+    private MinuteBucket bucketFor(long minute) {
+        int slot = slotOf(minute);
+        while (true) {
+            MinuteBucket current = buckets.get(slot);
+            if (current != null && current.minute == minute) {
+                return current;
+            }
+            if (current != null && current.minute > minute) {
+                return null;
+            }
+            MinuteBucket fresh = new MinuteBucket(minute);
+            if (buckets.compareAndSet(slot, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private int slotOf(long minute) {
+        return (int) Math.floorMod(minute, (long) buckets.length());
+    }
+
+    private static long minuteOf(Instant instant) {
+        return Math.floorDiv(instant.toEpochMilli(), MINUTE_MILLIS);
+    }
+
+    private static final class MinuteBucket {
+        private final long minute;
+        private final LongAdder total = new LongAdder();
+        private final LongAdder[] bySeverity = new LongAdder[Severity.values().length];
+
+        private MinuteBucket(long minute) {
+            this.minute = minute;
+            for (int i = 0; i < bySeverity.length; i++) {
+                bySeverity[i] = new LongAdder();
+            }
+        }
+    }
+}
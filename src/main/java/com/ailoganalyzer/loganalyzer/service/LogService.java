@@ -1,34 +1,47 @@
 package com.ailoganalyzer.loganalyzer.service;
 
+import com.ailoganalyzer.loganalyzer.dto.LogSearchResult;
 import com.ailoganalyzer.loganalyzer.model.Log;
 import com.ailoganalyzer.loganalyzer.model.Severity;
 import com.ailoganalyzer.loganalyzer.repository.elasticsearch.LogElasticsearchRepository;
 import com.ailoganalyzer.loganalyzer.repository.jpa.LogJpaRepository;
+import com.ailoganalyzer.loganalyzer.repository.jpa.OutboxEventRepository;
+import com.ailoganalyzer.loganalyzer.service.query.LogQuery;
+import com.ailoganalyzer.loganalyzer.service.query.LogQueryCompiler;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.elasticsearch.client.elc.NativeQuery;
 import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndicesOptions;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
-import co.elastic.clients.elasticsearch._types.query_dsl.TermQuery;
-import co.elastic.clients.elasticsearch._types.query_dsl.MatchQuery;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.ArrayList;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class LogService {
 
     @Qualifier("logJpaRepository")
@@ -39,170 +52,260 @@ public class LogService {
 
     private final ElasticsearchOperations elasticsearchOperations;
 
-    private final KafkaProducerService kafkaProducerService;
+    private final ElasticsearchClient elasticsearchClient;
 
+    private final LogIndexRouter logIndexRouter;
+
+    private final LogQueryCompiler logQueryCompiler;
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final OutboxRelay outboxRelay;
+
+    private final LogCopyWriter logCopyWriter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${loganalyzer.ingest.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+
+    // Batches this large are written with COPY instead of batched INSERTs
+    @Value("${loganalyzer.ingest.copy-threshold:200}")
+    private int copyThreshold;
+
+    @Value("${loganalyzer.search.track-total-hits-up-to:10000}")
+    private int trackTotalHitsUpTo;
+
+    @Value("${loganalyzer.search.cursor-keep-alive-ms:300000}")
+    private long cursorKeepAliveMs;
+
+    /**
+     * Saves the log together with its outbox event. OutboxRelay publishes it to Kafka after the commit,
+     * so a rolled-back log is never published and a committed one is published even if Kafka is down.
+     */
     @Transactional
     public Log saveLog(Log log) {
         // Save to PostgreSQL first to get the ID
         Log savedLog = logRepository.save(log);
+        outboxEventRepository.save(outboxRelay.eventFor(savedLog));
+        return savedLog;
+    }
 
-        // Send to Kafka for async processing
-        kafkaProducerService.sendLog(savedLog);
+    /**
+     * Persists a whole batch in one transaction. Batches of at least copy-threshold logs are loaded with
+     * COPY; smaller ones use the pooled sequences, so Hibernate can group the inserts into JDBC batches.
+     * The persistence context is flushed and cleared per chunk to keep memory flat.
+     */
+    @Transactional
+    public List<Log> saveLogs(List<Log> logs) {
+        if (logs.size() >= copyThreshold) {
+            logCopyWriter.copyAll(logs);
+            for (int from = 0; from < logs.size(); from += jdbcBatchSize) {
+                List<Log> chunk = logs.subList(from, Math.min(from + jdbcBatchSize, logs.size()));
+                outboxEventRepository.saveAll(chunk.stream().map(outboxRelay::eventFor).toList());
+                entityManager.flush();
+                entityManager.clear();
+            }
+            return logs;
+        }
 
-        return savedLog;
+        List<Log> savedLogs = new ArrayList<>(logs.size());
+        for (int from = 0; from < logs.size(); from += jdbcBatchSize) {
+            List<Log> chunk = logs.subList(from, Math.min(from + jdbcBatchSize, logs.size()));
+            List<Log> savedChunk = logRepository.saveAll(chunk);
+            // Outbox events are published to Kafka by OutboxRelay once this transaction commits
+            outboxEventRepository.saveAll(savedChunk.stream().map(outboxRelay::eventFor).toList());
+            savedLogs.addAll(savedChunk);
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return savedLogs;
     }
 
     public Optional<Log> findById(Long id) {
         return logRepository.findById(id);
     }
 
-    public Page<Log> findAll(int page, int size) {
-        return logRepository.findAll(PageRequest.of(page, size));
-    }
-
-    public List<Log> search(Map<String, Object> filter, int page, int size) {
-        NativeQueryBuilder queryBuilder = new NativeQueryBuilder();
-        queryBuilder.withPageable(PageRequest.of(page, size));
-
-        BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
-
-        if (filter != null) {
-            // Filter by applications
-            if (filter.containsKey("applications")) {
-                List<String> applications = (List<String>) filter.get("applications");
-                if (!applications.isEmpty()) {
-                    List<Query> queries = new ArrayList<>();
-                    for (String app : applications) {
-                        TermQuery termQuery = new TermQuery.Builder()
-                                .field("application")
-                                .value(app)
-                                .build();
-                        queries.add(new Query.Builder().term(termQuery).build());
-                    }
-                    boolQueryBuilder.must(queries);
-                }
+    /**
+     * Lists all logs newest first, ordered by (timestamp, id), straight from PostgreSQL. Without a cursor
+     * this reads the requested page; an empty cursor starts keyset paging, and each nextCursor continues
+     * after the last row returned, so deep pages cost the same as the first. The total is the planner's
+     * estimate unless {@code exactCount} is set, and it is only computed for the first page of a cursor.
+     */
+    public LogSearchResult listAll(int page, int size, String cursor, boolean exactCount) {
+        if (cursor != null && !cursor.isEmpty()) {
+            SearchCursor position = SearchCursor.decode(cursor);
+            if (position.pointInTimeId() != null) {
+                throw new IllegalArgumentException("Cursor belongs to a filtered search; repeat the same filter to continue it");
             }
-
-            // Filter by severity
-            if (filter.containsKey("severities")) {
-                List<String> severities = (List<String>) filter.get("severities");
-                if (!severities.isEmpty()) {
-                    List<Query> queries = new ArrayList<>();
-                    for (String sev : severities) {
-                        TermQuery termQuery = new TermQuery.Builder()
-                                .field("severity")
-                                .value(sev)
-                                .build();
-                        queries.add(new Query.Builder().term(termQuery).build());
-                    }
-                    boolQueryBuilder.must(queries);
-                }
+            if (position.searchAfter() == null || position.searchAfter().size() != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
             }
+            List<Log> logs = logRepository.findNewestBefore(cursorTimestamp(position.searchAfter().get(0)),
+                    ((Number) position.searchAfter().get(1)).longValue(), size);
+            return new LogSearchResult(logs, position.totalElements(), keysetCursorAfter(logs, size, position.totalElements()));
+        }
 
-            // Filter by message text
-            if (filter.containsKey("messageContains")) {
-                String messageContains = (String) filter.get("messageContains");
-                if (!messageContains.isBlank()) {
-                    MatchQuery matchQuery = new MatchQuery.Builder()
-                            .field("message")
-                            .query(messageContains)
-                            .build();
-                    boolQueryBuilder.must(new Query.Builder().match(matchQuery).build());
-                }
-            }
+        List<Log> logs = logRepository.findNewest(size, (long) page * size);
+        long totalElements = exactCount ? logRepository.count() : countAll();
+        String nextCursor = cursor != null ? keysetCursorAfter(logs, size, totalElements) : null;
+        return new LogSearchResult(logs, totalElements, nextCursor);
+    }
 
-            // Filter by metadata
-            if (filter.containsKey("metadata")) {
-                Map<String, String> metadataFilter = (Map<String, String>) filter.get("metadata");
-                if (metadataFilter != null && metadataFilter.containsKey("key")
-                        && metadataFilter.containsKey("value")) {
-                    String key = metadataFilter.get("key");
-                    String value = metadataFilter.get("value");
-
-                    // Use the direct repository method instead of building a complex query
-                    return logElasticsearchRepository.findByMetadataKeyAndValue(key, value);
-                }
-            }
+    private String keysetCursorAfter(List<Log> logs, int size, long totalElements) {
+        if (logs.size() < size) {
+            return null;
+        }
+        Log last = logs.get(logs.size() - 1);
+        return new SearchCursor(null, List.of(last.getTimestamp().toString(), last.getId()), totalElements).encode();
+    }
 
-            // Filter by sources
-            if (filter.containsKey("sources")) {
-                List<String> sources = (List<String>) filter.get("sources");
-                if (!sources.isEmpty()) {
-                    List<Query> queries = new ArrayList<>();
-                    for (String src : sources) {
-                        TermQuery termQuery = new TermQuery.Builder()
-                                .field("source")
-                                .value(src)
-                                .build();
-                        queries.add(new Query.Builder().term(termQuery).build());
-                    }
-                    boolQueryBuilder.must(queries);
-                }
-            }
+    private Instant cursorTimestamp(Object value) {
+        try {
+            return value instanceof Number millis ? Instant.ofEpochMilli(millis.longValue()) : Instant.parse(value.toString());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
 
-            // Filter by hosts
-            if (filter.containsKey("hosts")) {
-                List<String> hosts = (List<String>) filter.get("hosts");
-                if (!hosts.isEmpty()) {
-                    List<Query> queries = new ArrayList<>();
-                    for (String host : hosts) {
-                        TermQuery termQuery = new TermQuery.Builder()
-                                .field("host")
-                                .value(host)
-                                .build();
-                        queries.add(new Query.Builder().term(termQuery).build());
-                    }
-                    boolQueryBuilder.must(queries);
-                }
-            }
+    /**
+     * Searches Elasticsearch with the given filter. Without a cursor this is plain from/size paging.
+     * With a cursor, pages are read from a point in time with search_after on (timestamp, id), so every page
+     * costs the same however deep it is, and logs ingested meanwhile never shift, repeat or skip results.
+     * An empty cursor starts a new scroll; the returned nextCursor continues it and is null on the last page.
+     */
+    public LogSearchResult search(LogQuery logQuery, int page, int size, String cursor) {
+        Query query = logQueryCompiler.compile(logQuery);
+        boolean firstPage = cursor == null || cursor.isEmpty();
+
+        // Only the daily indices overlapping the requested time range are searched
+        List<String> indices = firstPage
+                ? logIndexRouter.indicesFor(logQuery.getStartTime(), logQuery.getEndTime())
+                : List.of();
+        if (firstPage && indices.isEmpty()) {
+            return new LogSearchResult(List.of(), 0, null);
+        }
+
+        if (cursor == null) {
+            // The query is all filters, so there is no relevance order to keep; newest first instead
+            NativeQuery nativeQuery = NativeQuery.builder()
+                    .withQuery(query)
+                    .withPageable(PageRequest.of(page, size, Sort.by(Sort.Order.desc("timestamp"))))
+                    .withTrackTotalHitsUpTo(trackTotalHitsUpTo)
+                    .withIndicesOptions(IndicesOptions.LENIENT_EXPAND_OPEN)
+                    .build();
+
+            SearchHits<Log> searchHits = elasticsearchOperations.search(nativeQuery, Log.class,
+                    logIndexRouter.coordinatesFor(indices));
+            return new LogSearchResult(contentOf(searchHits), searchHits.getTotalHits(), null);
         }
 
-        BoolQuery boolQuery = boolQueryBuilder.build();
-        Query query = new Query.Builder().bool(boolQuery).build();
+        // The point in time pins the indices chosen for the first page
+        SearchCursor position = firstPage
+                ? new SearchCursor(openPointInTime(indices), null, 0)
+                : SearchCursor.decode(cursor);
+        if (position.pointInTimeId() == null) {
+            throw new IllegalArgumentException("Cursor belongs to the unfiltered listing; it cannot continue a filtered search");
+        }
 
-        NativeQuery nativeQuery = NativeQuery.builder()
+        NativeQueryBuilder queryBuilder = NativeQuery.builder()
                 .withQuery(query)
-                .withPageable(PageRequest.of(page, size))
-                .build();
+                .withPointInTime(new org.springframework.data.elasticsearch.core.query.Query.PointInTime(
+                        position.pointInTimeId(), Duration.ofMillis(cursorKeepAliveMs)))
+                .withSort(Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("id")))
+                .withMaxResults(size);
+        // Only the first page counts hits; later pages carry the total forward in the cursor
+        if (firstPage) {
+            queryBuilder.withTrackTotalHitsUpTo(trackTotalHitsUpTo);
+        } else {
+            queryBuilder.withTrackTotalHits(false);
+        }
+        if (position.searchAfter() != null) {
+            queryBuilder.withSearchAfter(position.searchAfter());
+        }
 
-        SearchHits<Log> searchHits = elasticsearchOperations.search(nativeQuery, Log.class);
+        SearchHits<Log> searchHits = elasticsearchOperations.search(queryBuilder.build(), Log.class);
+        long totalElements = firstPage ? searchHits.getTotalHits() : position.totalElements();
+        // Elasticsearch may hand back a new point in time ID; always continue from the latest one
+        String pointInTimeId = searchHits.getPointInTimeId() != null
+                ? searchHits.getPointInTimeId()
+                : position.pointInTimeId();
+
+        String nextCursor = null;
+        if (searchHits.getSearchHits().size() < size) {
+            closePointInTime(pointInTimeId);
+        } else {
+            List<Object> lastSortValues = searchHits.getSearchHit(searchHits.getSearchHits().size() - 1).getSortValues();
+            nextCursor = new SearchCursor(pointInTimeId, lastSortValues, totalElements).encode();
+        }
+        return new LogSearchResult(contentOf(searchHits), totalElements, nextCursor);
+    }
 
+    /**
+     * The newest {@code limit} logs matching the filter. Daily indices are searched one at a time from the
+     * newest, and the walk stops as soon as enough logs have been found, so older indices are never touched.
+     */
+    public List<Log> findLatest(LogQuery logQuery, int limit) {
+        Query query = logQueryCompiler.compile(logQuery);
+        List<Log> latest = new ArrayList<>(limit);
+        for (String index : logIndexRouter.indicesFor(logQuery.getStartTime(), logQuery.getEndTime())) {
+            NativeQuery nativeQuery = NativeQuery.builder()
+                    .withQuery(query)
+                    .withSort(Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("id")))
+                    .withMaxResults(limit - latest.size())
+                    .withTrackTotalHits(false)
+                    .withIndicesOptions(IndicesOptions.LENIENT_EXPAND_OPEN)
+                    .build();
+            latest.addAll(contentOf(elasticsearchOperations.search(nativeQuery, Log.class, IndexCoordinates.of(index))));
+            if (latest.size() >= limit) {
+                break;
+            }
+        }
+        return latest;
+    }
+
+    private List<Log> contentOf(SearchHits<Log> searchHits) {
         return searchHits.stream()
                 .map(SearchHit::getContent)
                 .collect(Collectors.toList());
     }
 
-    public long countAll() {
-        return logRepository.count();
+    private String openPointInTime(List<String> indices) {
+        List<String> targets = List.of(logIndexRouter.coordinatesFor(indices).getIndexNames());
+        try {
+            return elasticsearchClient.openPointInTime(r -> r
+                    .index(targets)
+                    .ignoreUnavailable(true)
+                    .keepAlive(t -> t.time(cursorKeepAliveMs + "ms"))).id();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open a point in time on " + targets, e);
+        }
     }
 
-    public List<Log> findByApplicationAndSeverity(String application, Severity severity) {
-        NativeQueryBuilder queryBuilder = new NativeQueryBuilder();
-
-        MatchQuery applicationMatchQuery = new MatchQuery.Builder()
-                .field("application")
-                .query(application)
-                .build();
-
-        MatchQuery severityMatchQuery = new MatchQuery.Builder()
-                .field("severity")
-                .query(severity.name())
-                .build();
-
-        Query applicationQuery = new Query.Builder().match(applicationMatchQuery).build();
-        Query severityQuery = new Query.Builder().match(severityMatchQuery).build();
-
-        List<Query> mustQueries = new ArrayList<>();
-        mustQueries.add(applicationQuery);
-        mustQueries.add(severityQuery);
+    private void closePointInTime(String pointInTimeId) {
+        try {
+            elasticsearchClient.closePointInTime(r -> r.id(pointInTimeId));
+        } catch (Exception e) {
+            // It expires on its own after the keep-alive
+            log.warn("Could not close point in time: {}", e.getMessage());
+        }
+    }
 
-        BoolQuery boolQuery = new BoolQuery.Builder()
-                .must(mustQueries)
-                .build();
+    /**
+     * Estimated number of stored logs, from planner statistics.
+     */
+    public long countAll() {
+        return logRepository.estimateCount();
+    }
 
-        Query query = new Query.Builder().bool(boolQuery).build();
+    public List<Log> findByApplicationAndSeverity(String application, Severity severity) {
+        Query query = logQueryCompiler.compile(LogQuery.builder()
+                .applications(List.of(application))
+                .severities(List.of(severity))
+                .build());
 
-        NativeQuery searchQuery = queryBuilder
+        NativeQuery searchQuery = NativeQuery.builder()
                 .withQuery(query)
                 .build();
 
@@ -0,0 +1,201 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.model.OutboxEvent;
+import com.ailoganalyzer.loganalyzer.repository.jpa.LogJpaRepository;
+import com.ailoganalyzer.loganalyzer.repository.jpa.OutboxEventRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes saved logs to Kafka from the log_outbox table. Events are spread over shards by their Kafka
+ * record key. A relay thread claims a shard by locking its row with FOR UPDATE SKIP LOCKED, publishes the
+ * shard's oldest events in id order, waits for Kafka to acknowledge them and deletes them in the same
+ * transaction. Threads on this and other nodes work on different shards in parallel, and events for one
+ * key are never relayed by two owners at once, so they reach Kafka in log_outbox id order within a key.
+ * Ids are allocated from a pooled sequence before commit, so that is the order in which the events were
+ * written by one writer, but not necessarily commit order for events of the same key written by
+ * concurrent transactions or by different nodes.
+ *
+ * If the send or the delete fails the transaction rolls back and the batch is relayed again later,
+ * so delivery is at least once.
+ *
+ * The scheduled poll only starts a pass on the relay threads and returns, so waiting for Kafka never holds
+ * up the other scheduled jobs, which share one scheduler thread. Each pass relays a bounded number of
+ * batches per thread; a busy outbox is worked off over consecutive passes.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final LogJpaRepository logRepository;
+    private final KafkaProducerService kafkaProducerService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService relayExecutor;
+
+    private final int shards;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final int relayThreads;
+    private final int batchesPerPass;
+    // Relay threads still working on the current pass; a new pass starts only once this is back at 0
+    private final AtomicInteger activeRelays = new AtomicInteger();
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       LogJpaRepository logRepository,
+                       KafkaProducerService kafkaProducerService,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${loganalyzer.outbox.shards:64}") int shards,
+                       @Value("${loganalyzer.outbox.batch-size:1000}") int batchSize,
+                       @Value("${loganalyzer.outbox.send-timeout-ms:30000}") long sendTimeoutMs,
+                       @Value("${loganalyzer.outbox.relay-threads:4}") int relayThreads,
+                       @Value("${loganalyzer.outbox.batches-per-pass:10}") int batchesPerPass) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.logRepository = logRepository;
+        this.kafkaProducerService = kafkaProducerService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shards = shards;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.relayThreads = relayThreads;
+        this.batchesPerPass = batchesPerPass;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.relayExecutor = Executors.newFixedThreadPool(relayThreads, runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("loganalyzer.outbox.pending", outboxEventRepository, OutboxEventRepository::countPending)
+                .description("Saved logs not yet published to Kafka")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void createShards() {
+        outboxEventRepository.createShards(shards);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        relayExecutor.shutdown();
+    }
+
+    /**
+     * Shard for a log, derived from its Kafka record key. Logs without a key have no ordering
+     * requirement and are spread by id.
+     */
+    public int shardFor(Log logEntry) {
+        String key = kafkaProducerService.keyFor(logEntry);
+        return Math.floorMod(key != null ? key.hashCode() : Long.hashCode(logEntry.getId()), shards);
+    }
+
+    public OutboxEvent eventFor(Log logEntry) {
+        return OutboxEvent.builder()
+                .logId(logEntry.getId())
+                .logTimestamp(logEntry.getTimestamp())
+                .shard(shardFor(logEntry))
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    /**
+     * Starts a pass on the relay threads unless the previous one is still running. Each thread relays
+     * up to batches-per-pass batches, stopping early once no unclaimed shard has pending events.
+     */
+    @Scheduled(fixedDelayString = "${loganalyzer.outbox.poll-interval-ms:200}")
+    public void relay() {
+        if (!activeRelays.compareAndSet(0, relayThreads)) {
+            return;
+        }
+        for (int i = 0; i < relayThreads; i++) {
+            try {
+                relayExecutor.execute(this::relayPass);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                activeRelays.decrementAndGet();
+            }
+        }
+    }
+
+    private void relayPass() {
+        try {
+            for (int batch = 0; batch < batchesPerPass; batch++) {
+                if (relayNextBatch() == 0) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Outbox relay failed, will retry: {}", e.getMessage());
+        } finally {
+            activeRelays.decrementAndGet();
+        }
+    }
+
+    /**
+     * Claims a shard and publishes its next batch. Returns the number of events relayed, 0 if there was nothing to claim.
+     */
+    int relayNextBatch() {
+        Integer relayed = transactionTemplate.execute(status -> {
+            Optional<Integer> shard = outboxEventRepository.claimShard();
+            if (shard.isEmpty()) {
+                return 0;
+            }
+            List<OutboxEvent> events = outboxEventRepository.findNextBatch(shard.get(), batchSize);
+            if (events.isEmpty()) {
+                return 0;
+            }
+
+            Map<Long, Log> logsById = logRepository.findAllByIdAndTimestamp(
+                            events.stream().map(OutboxEvent::getLogId).toList(),
+                            events.stream().map(OutboxEvent::getLogTimestamp).collect(Collectors.toSet()))
+                    .stream()
+                    .collect(Collectors.toMap(Log::getId, Function.identity()));
+            // Outbox order, not query order; logs deleted since they were saved are skipped
+            List<Log> logs = new ArrayList<>(events.size());
+            for (OutboxEvent event : events) {
+                Log logEntry = logsById.get(event.getLogId());
+                if (logEntry != null) {
+                    logs.add(logEntry);
+                }
+            }
+
+            try {
+                kafkaProducerService.publishLogs(logs).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while publishing outbox shard " + shard.get(), e);
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not publish outbox shard " + shard.get() + ": " + e.getMessage(), e);
+            }
+
+            outboxEventRepository.deleteAllByIdInBatch(events.stream().map(OutboxEvent::getId).toList());
+            log.debug("Relayed {} logs from outbox shard {}", logs.size(), shard.get());
+            return events.size();
+        });
+        return relayed != null ? relayed : 0;
+    }
+}
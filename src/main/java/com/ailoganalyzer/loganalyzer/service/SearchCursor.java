@@ -0,0 +1,32 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Position in a cursor-paged search: the point in time being read, the sort values of the last hit
+ * returned, and the total counted on the first page. Clients only ever see it as an opaque string.
+ */
+record SearchCursor(String pointInTimeId, List<Object> searchAfter, long totalElements) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(this));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode search cursor", e);
+        }
+    }
+
+    static SearchCursor decode(String cursor) {
+        try {
+            return MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), SearchCursor.class);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ailoganalyzer.loganalyzer.service.ai;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs AI calls on a dedicated pool so independent calls overlap instead of queuing behind each other.
+ * The pool size caps how many calls are in flight and at most loganalyzer.ai.queue-capacity more wait for
+ * a thread; further calls are rejected. Each call gets its own timeout, counted from when it is submitted,
+ * so time spent queued counts too. A call still queued at its deadline never runs, and one still running is
+ * interrupted. A call that fails, times out or is rejected yields null, so callers can return partial results.
+ */
+@Component
+@Slf4j
+public class AiEnrichmentExecutor {
+
+    private final ThreadPoolExecutor pool;
+    private final long callTimeoutMs;
+
+    public AiEnrichmentExecutor(@Value("${loganalyzer.ai.concurrency:8}") int concurrency,
+                                @Value("${loganalyzer.ai.queue-capacity:100}") int queueCapacity,
+                                @Value("${loganalyzer.ai.call-timeout-ms:30000}") long callTimeoutMs) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "ai-enrichment-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.callTimeoutMs = callTimeoutMs;
+    }
+
+    public <R> CompletableFuture<R> submit(Supplier<R> call) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = pool.submit(() -> {
+                try {
+                    result.complete(call.get());
+                } catch (Exception e) {
+                    if (!result.isDone()) {
+                        log.warn("AI call failed: {}", e.getMessage());
+                    }
+                    result.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("AI call rejected: {} calls already waiting", pool.getQueue().size());
+            result.complete(null);
+            return result;
+        }
+        CompletableFuture.delayedExecutor(callTimeoutMs, TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.complete(null)) {
+                // Drops the call if it is still queued and interrupts it if it is running
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Applies the call to every item concurrently and returns the results in item order,
+     * with null for items whose call failed or timed out.
+     */
+    public <T, R> List<R> mapAll(List<T> items, Function<T, R> call) {
+        List<CompletableFuture<R>> futures = items.stream()
+                .map(item -> submit(() -> call.apply(item)))
+                .toList();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,52 @@
+package com.ailoganalyzer.loganalyzer.service.ai;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket shared by every call that reaches the model provider.
+ * Tokens refill continuously at the configured rate up to the burst size. A caller that finds the
+ * bucket empty reserves the next token and sleeps until it is due, so waiting callers are served in order.
+ * A caller interrupted while waiting, for example because its call timed out, gives its token back.
+ */
+@Component
+public class AiRateLimiter {
+
+    private final double tokensPerNano;
+    private final double burst;
+
+    private double tokens;
+    private long lastRefill;
+
+    public AiRateLimiter(@Value("${loganalyzer.ai.rate-limit-per-second:5}") double permitsPerSecond,
+                         @Value("${loganalyzer.ai.rate-limit-burst:10}") int burst) {
+        this.tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public void acquire() {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            tokens -= 1;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens / tokensPerNano);
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                synchronized (this) {
+                    tokens += 1;
+                }
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the AI rate limit", e);
+            }
+        }
+    }
+}
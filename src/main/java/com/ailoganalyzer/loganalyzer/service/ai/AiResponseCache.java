@@ -0,0 +1,195 @@
+package com.ailoganalyzer.loganalyzer.service.ai;
+
+import com.ailoganalyzer.loganalyzer.service.template.LogTemplateMiner;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of AI responses keyed by prompt type and the masked-message fingerprint of the input,
+ * so messages that only differ in IDs, numbers or key=value values share one answer. Callers whose input
+ * has its own identity, such as an anomaly, give the key themselves.
+ * Entries expire after a TTL. Concurrent misses for the same key wait on a single in-flight call
+ * instead of each calling the model. When a file is configured the cache is saved periodically
+ * and on shutdown, and reloaded at startup.
+ */
+@Component
+@Slf4j
+public class AiResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final String persistFile;
+
+    private final Map<String, CacheEntry> entries;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    record CacheEntry(String value, long expiresAt) {
+    }
+
+    public AiResponseCache(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${loganalyzer.ai.cache.max-entries:10000}") int maxEntries,
+                           @Value("${loganalyzer.ai.cache.ttl-minutes:1440}") long ttlMinutes,
+                           @Value("${loganalyzer.ai.cache.file:}") String persistFile) {
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = Duration.ofMinutes(ttlMinutes).toMillis();
+        this.persistFile = persistFile;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > AiResponseCache.this.maxEntries;
+            }
+        };
+
+        this.hits = meterRegistry.counter("loganalyzer.ai.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("loganalyzer.ai.cache.requests", "result", "miss");
+        this.coalesced = meterRegistry.counter("loganalyzer.ai.cache.requests", "result", "coalesced");
+        meterRegistry.gauge("loganalyzer.ai.cache.size", entries, this::size);
+    }
+
+    /**
+     * Returns the cached response for this prompt type and input, calling the model at most once per key
+     * across concurrent callers when it is missing or expired.
+     */
+    public String get(String promptType, String input, Supplier<String> call) {
+        return getByKey(promptType, LogTemplateMiner.fingerprintOf(input), call);
+    }
+
+    /**
+     * Like {@link #get}, for a key given by the caller. Every input sharing the key must be answered
+     * the same, so it should leave out anything the key does not cover.
+     */
+    public String getByKey(String promptType, String inputKey, Supplier<String> call) {
+        String key = promptType + ":" + inputKey;
+
+        String cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            // Another caller may have finished the same call between the lookup and claiming the key
+            String value = lookup(key);
+            if (value != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+                value = call.get();
+                if (value != null) {
+                    synchronized (entries) {
+                        entries.put(key, new CacheEntry(value, System.currentTimeMillis() + ttlMillis));
+                    }
+                }
+            }
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private String lookup(String key) {
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() <= System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    private int size(Map<String, CacheEntry> map) {
+        synchronized (entries) {
+            return map.size();
+        }
+    }
+
+    @PostConstruct
+    void load() {
+        if (persistFile.isBlank() || !Files.exists(Path.of(persistFile))) {
+            return;
+        }
+        try {
+            Map<String, CacheEntry> saved = objectMapper.readValue(Path.of(persistFile).toFile(),
+                    new TypeReference<LinkedHashMap<String, CacheEntry>>() {
+                    });
+            long now = System.currentTimeMillis();
+            synchronized (entries) {
+                saved.forEach((key, entry) -> {
+                    if (entry.expiresAt() > now) {
+                        entries.put(key, entry);
+                    }
+                });
+            }
+            log.info("Loaded {} cached AI responses from {}", saved.size(), persistFile);
+        } catch (IOException e) {
+            log.warn("Could not load AI response cache from {}: {}", persistFile, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${loganalyzer.ai.cache.persist-interval-ms:60000}")
+    public void persist() {
+        if (persistFile.isBlank()) {
+            return;
+        }
+        Map<String, CacheEntry> snapshot;
+        synchronized (entries) {
+            snapshot = new LinkedHashMap<>(entries);
+        }
+        try {
+            // Write to a temporary file first so a crash mid-write never leaves a truncated cache behind
+            Path target = Path.of(persistFile);
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            objectMapper.writeValue(temp.toFile(), snapshot);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not persist AI response cache to {}: {}", persistFile, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.ailoganalyzer.loganalyzer.service.ai;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * {@link AiAssistant} that answers from {@link AiResponseCache} and only calls the model on a miss,
+ * after taking a token from {@link AiRateLimiter}. It is the primary bean, so every class that injects
+ * AiAssistant goes through the cache and the rate limit.
+ */
+@Service
+@Primary
+public class CachingAiAssistant implements AiAssistant {
+
+    private final AiAssistant delegate;
+    private final AiResponseCache cache;
+    private final AiRateLimiter rateLimiter;
+
+    public CachingAiAssistant(@Qualifier("aiAssistant") AiAssistant delegate,
+                              AiResponseCache cache,
+                              AiRateLimiter rateLimiter) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public String analyzeAnomaly(String anomalyData) {
+        return cache.get("analyzeAnomaly", anomalyData, () -> {
+            rateLimiter.acquire();
+            return delegate.analyzeAnomaly(anomalyData);
+        });
+    }
+
+    /**
+     * Analysis of an anomaly, cached per {@code anomalyKey} instead of the fingerprint of the prompt, which
+     * would let anomalies with different applications or counts share an answer quoting the wrong ones.
+     */
+    public String analyzeAnomaly(String anomalyKey, String anomalyData) {
+        return cache.getByKey("analyzeAnomaly", anomalyKey, () -> {
+            rateLimiter.acquire();
+            return delegate.analyzeAnomaly(anomalyData);
+        });
+    }
+
+    public String suggestRootCause(String anomalyKey, String problemDescription) {
+        return cache.getByKey("suggestRootCause", anomalyKey, () -> {
+            rateLimiter.acquire();
+            return delegate.suggestRootCause(problemDescription);
+        });
+    }
+
+    @Override
+    public String suggestRootCause(String problemDescription) {
+        return cache.get("suggestRootCause", problemDescription, () -> {
+            rateLimiter.acquire();
+            return delegate.suggestRootCause(problemDescription);
+        });
+    }
+
+    @Override
+    public String summarizeLogs(String logSummary) {
+        return cache.get("summarizeLogs", logSummary, () -> {
+            rateLimiter.acquire();
+            return delegate.summarizeLogs(logSummary);
+        });
+    }
+}
@@ -0,0 +1,17 @@
+package com.ailoganalyzer.loganalyzer.service.ingest;
+
+import lombok.Getter;
+
+/**
+ * Thrown when the ingestion queue has no room for a request. Clients should retry after the given delay.
+ */
+@Getter
+public class IngestionOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public IngestionOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,212 @@
+package com.ailoganalyzer.loganalyzer.service.ingest;
+
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.service.LogService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded, batching stage in front of {@link LogService}. Requests are queued and answered with a future;
+ * writer threads drain the queue and persist several requests per transaction. The queue is bounded in
+ * logs, not requests. When it is full, a request waits at most enqueue-timeout-ms for room and is then
+ * rejected with {@link IngestionOverloadedException}, so request threads are never parked behind a slow
+ * database.
+ */
+@Service
+@Slf4j
+public class IngestionPipeline {
+
+    private record PendingRequest(List<Log> logs, CompletableFuture<List<Log>> result) {
+    }
+
+    private final LogService logService;
+    private final LinkedBlockingQueue<PendingRequest> queue = new LinkedBlockingQueue<>();
+    // One permit per log of free queue capacity
+    private final Semaphore capacity;
+    private final ExecutorService writers;
+
+    private final int queueCapacity;
+    private final int writerThreads;
+    private final int writerBatchSize;
+    private final long enqueueTimeoutMs;
+    private final long retryAfterSeconds;
+
+    private final Timer enqueueTimer;
+    private final Counter rejectedCounter;
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running = true;
+
+    public IngestionPipeline(LogService logService,
+                             MeterRegistry meterRegistry,
+                             @Value("${loganalyzer.ingest.queue-capacity:20000}") int queueCapacity,
+                             @Value("${loganalyzer.ingest.writer-threads:2}") int writerThreads,
+                             @Value("${loganalyzer.ingest.writer-batch-size:1000}") int writerBatchSize,
+                             @Value("${loganalyzer.ingest.enqueue-timeout-ms:50}") long enqueueTimeoutMs,
+                             @Value("${loganalyzer.ingest.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.logService = logService;
+        this.queueCapacity = queueCapacity;
+        this.writerThreads = writerThreads;
+        this.writerBatchSize = writerBatchSize;
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.capacity = new Semaphore(queueCapacity);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(writerThreads,
+                runnable -> new Thread(runnable, "ingest-writer-" + threadCount.incrementAndGet()));
+
+        Gauge.builder("loganalyzer.ingest.queue.depth", capacity, c -> queueCapacity - c.availablePermits())
+                .description("Logs accepted but not yet written")
+                .register(meterRegistry);
+        this.enqueueTimer = Timer.builder("loganalyzer.ingest.enqueue.latency")
+                .description("Time a request waits for queue capacity")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("loganalyzer.ingest.rejected")
+                .description("Logs rejected because the ingestion queue was full")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("loganalyzer.ingest.written")
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("loganalyzer.ingest.written")
+                .tag("outcome", "failure")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        for (int i = 0; i < writerThreads; i++) {
+            writers.execute(this::writeLoop);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // Writers finish what is already queued before exiting
+        running = false;
+        writers.shutdown();
+        if (!writers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Ingestion writers did not drain the queue in time; {} requests left", queue.size());
+        }
+    }
+
+    public CompletableFuture<Log> submit(Log logEntry) {
+        return submitAll(List.of(logEntry)).thenApply(saved -> saved.get(0));
+    }
+
+    /**
+     * Queues the logs and returns a future that completes once they are committed.
+     *
+     * @throws IngestionOverloadedException if the queue has no room within enqueue-timeout-ms
+     */
+    public CompletableFuture<List<Log>> submitAll(List<Log> logs) {
+        if (!running) {
+            throw new IngestionOverloadedException("Ingestion is shutting down", retryAfterSeconds);
+        }
+        if (logs.size() > queueCapacity) {
+            throw new IllegalArgumentException("Batch of " + logs.size() + " logs exceeds the ingestion queue capacity");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = capacity.tryAcquire(logs.size(), enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            enqueueTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            rejectedCounter.increment(logs.size());
+            throw new IngestionOverloadedException("Ingestion queue is full", retryAfterSeconds);
+        }
+
+        PendingRequest request = new PendingRequest(logs, new CompletableFuture<>());
+        queue.add(request);
+        return request.result();
+    }
+
+    private void writeLoop() {
+        List<PendingRequest> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRequest first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                int size = first.logs().size();
+                // Take further requests while they fit into one batch
+                PendingRequest next;
+                while (size < writerBatchSize && (next = queue.peek()) != null
+                        && size + next.logs().size() <= writerBatchSize && queue.remove(next)) {
+                    batch.add(next);
+                    size += next.logs().size();
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in ingestion writer: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingRequest> batch) {
+        List<Log> logs = new ArrayList<>();
+        batch.forEach(request -> logs.addAll(request.logs()));
+        try {
+            List<Log> saved = logService.saveLogs(logs);
+            int offset = 0;
+            for (PendingRequest request : batch) {
+                int size = request.logs().size();
+                request.result().complete(saved.subList(offset, offset + size));
+                offset += size;
+            }
+            writtenCounter.increment(logs.size());
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+            } else {
+                // Write requests one by one so a single bad request does not fail the others
+                for (PendingRequest request : batch) {
+                    try {
+                        request.result().complete(logService.saveLogs(request.logs()));
+                        writtenCounter.increment(request.logs().size());
+                    } catch (RuntimeException requestFailure) {
+                        fail(request, requestFailure);
+                    }
+                }
+            }
+        } finally {
+            capacity.release(logs.size());
+        }
+    }
+
+    private void fail(PendingRequest request, RuntimeException e) {
+        log.warn("Failed to write {} logs: {}", request.logs().size(), e.getMessage());
+        failedCounter.increment(request.logs().size());
+        request.result().completeExceptionally(e);
+    }
+}
@@ -0,0 +1,211 @@
+package com.ailoganalyzer.loganalyzer.service.query;
+
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Typed log search. Values within a field are alternatives (OR); fields, text terms and metadata pairs
+ * must all match (AND). Keyword values may contain {@code *} wildcards. Value lists are kept sorted
+ * and de-duplicated, so equal searches are equal objects and render to the same query text.
+ */
+@Value
+@Builder(toBuilder = true)
+public class LogQuery {
+
+    @Builder.Default
+    List<String> applications = List.of();
+
+    @Builder.Default
+    List<Severity> severities = List.of();
+
+    @Builder.Default
+    List<String> sources = List.of();
+
+    @Builder.Default
+    List<String> hosts = List.of();
+
+    // Words and phrases that must appear in the message
+    @Builder.Default
+    List<String> text = List.of();
+
+    @Builder.Default
+    Map<String, String> metadata = Map.of();
+
+    Instant startTime;
+
+    Instant endTime;
+
+    public static LogQuery empty() {
+        return LogQuery.builder().build();
+    }
+
+    /**
+     * Converts the GraphQL LogFilter / REST filter map into a typed query.
+     */
+    @SuppressWarnings("unchecked")
+    public static LogQuery fromFilter(Map<String, Object> filter) {
+        if (filter == null || filter.isEmpty()) {
+            return empty();
+        }
+        LogQuery.LogQueryBuilder builder = LogQuery.builder()
+                .applications(normalize((Collection<String>) filter.get("applications")))
+                .severities(normalizeSeverities((Collection<?>) filter.get("severities")))
+                .sources(normalize((Collection<String>) filter.get("sources")))
+                .hosts(normalize((Collection<String>) filter.get("hosts")))
+                .startTime(parseTime((String) filter.get("startTime"), "startTime"))
+                .endTime(parseTime((String) filter.get("endTime"), "endTime"));
+
+        String messageContains = (String) filter.get("messageContains");
+        if (messageContains != null && !messageContains.isBlank()) {
+            builder.text(List.of(messageContains.trim()));
+        }
+
+        Map<String, String> metadataFilter = (Map<String, String>) filter.get("metadata");
+        if (metadataFilter != null && metadataFilter.get("key") != null && metadataFilter.get("value") != null) {
+            builder.metadata(Map.of(metadataFilter.get("key"), metadataFilter.get("value")));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Both queries must match. A field may only be constrained on one side, except the time range,
+     * which is intersected, and text terms, which are all required.
+     */
+    public LogQuery and(LogQuery other) {
+        Map<String, String> combinedMetadata = new TreeMap<>(metadata);
+        other.metadata.forEach((key, value) -> {
+            String existing = combinedMetadata.putIfAbsent(key, value);
+            if (existing != null && !existing.equals(value)) {
+                throw new IllegalArgumentException("Conflicting values for metadata key " + key);
+            }
+        });
+        List<String> combinedText = new ArrayList<>(text);
+        combinedText.addAll(other.text);
+
+        return LogQuery.builder()
+                .applications(either("applications", applications, other.applications))
+                .severities(either("severities", severities, other.severities))
+                .sources(either("sources", sources, other.sources))
+                .hosts(either("hosts", hosts, other.hosts))
+                .text(normalize(combinedText))
+                .metadata(Map.copyOf(combinedMetadata))
+                .startTime(later(startTime, other.startTime))
+                .endTime(earlier(endTime, other.endTime))
+                .build();
+    }
+
+    public boolean isEmpty() {
+        return applications.isEmpty() && severities.isEmpty() && sources.isEmpty() && hosts.isEmpty()
+                && text.isEmpty() && metadata.isEmpty() && startTime == null && endTime == null;
+    }
+
+    /**
+     * Canonical query-language form: fixed field order, sorted values. Parsing it gives an equal query.
+     */
+    public String toQueryString() {
+        List<String> parts = new ArrayList<>();
+        addField(parts, "app", applications, Function.identity());
+        addField(parts, "severity", severities, Severity::name);
+        addField(parts, "source", sources, Function.identity());
+        addField(parts, "host", hosts, Function.identity());
+        new TreeMap<>(metadata).forEach((key, value) -> parts.add("meta." + key + ":" + quoteIfNeeded(value)));
+        if (startTime != null) {
+            parts.add("from:" + startTime);
+        }
+        if (endTime != null) {
+            parts.add("to:" + endTime);
+        }
+        // A bare word with a colon would be read as a field, and one with a quote as the start of a phrase
+        text.forEach(term -> parts.add(term.contains(" ") || term.contains(":") || term.contains("\"") ? quote(term) : term));
+        return String.join(" ", parts);
+    }
+
+    static List<String> normalize(Collection<String> values) {
+        if (values == null) {
+            return List.of();
+        }
+        return List.copyOf(values.stream()
+                .filter(value -> value != null && !value.isBlank())
+                .map(String::trim)
+                .collect(Collectors.toCollection(TreeSet::new)));
+    }
+
+    static List<Severity> normalizeSeverities(Collection<?> values) {
+        if (values == null) {
+            return List.of();
+        }
+        return List.copyOf(values.stream()
+                .map(value -> value instanceof Severity severity ? severity : parseSeverity(value.toString()))
+                .collect(Collectors.toCollection(TreeSet::new)));
+    }
+
+    static Severity parseSeverity(String value) {
+        try {
+            return Severity.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown severity: " + value);
+        }
+    }
+
+    // Accepts ISO instants ("2024-03-17T14:32:21Z"), offset date-times and local date-times (taken as UTC)
+    static Instant parseTime(String text, String name) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(text).toInstant();
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC);
+            } catch (DateTimeParseException ignored) {
+                throw new IllegalArgumentException("Invalid " + name + ": " + text);
+            }
+        }
+    }
+
+    private static <T> List<T> either(String field, List<T> left, List<T> right) {
+        if (!left.isEmpty() && !right.isEmpty() && !left.equals(right)) {
+            throw new IllegalArgumentException("Field " + field + " is constrained by both the filter and the query");
+        }
+        return left.isEmpty() ? right : left;
+    }
+
+    private static Instant later(Instant a, Instant b) {
+        return a == null ? b : b == null ? a : a.isAfter(b) ? a : b;
+    }
+
+    private static Instant earlier(Instant a, Instant b) {
+        return a == null ? b : b == null ? a : a.isBefore(b) ? a : b;
+    }
+
+    private static <T> void addField(List<String> parts, String name, List<T> values, Function<T, String> render) {
+        if (!values.isEmpty()) {
+            parts.add(name + ":" + values.stream().map(render).map(LogQuery::quoteIfNeeded).collect(Collectors.joining(",")));
+        }
+    }
+
+    private static String quoteIfNeeded(String value) {
+        return value.contains(" ") || value.contains(",") || value.contains("\"") ? quote(value) : value;
+    }
+
+    // Backslash-escapes quotes and backslashes, as LogQueryParser expects inside quotes
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,112 @@
+package com.ailoganalyzer.loganalyzer.service.query;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.json.JsonData;
+import com.ailoganalyzer.loganalyzer.model.Log;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a {@link LogQuery} into an Elasticsearch bool query made only of filter clauses.
+ * Nothing is scored, and identical clauses are eligible for the node query cache. Each keyword field
+ * becomes a single terms query, plus wildcard clauses for values containing {@code *}.
+ * Compiled plans are kept in an LRU keyed by the query itself, which is a value with equals and hashCode.
+ */
+@Component
+public class LogQueryCompiler {
+
+    private final Map<LogQuery, Query> plans;
+
+    public LogQueryCompiler(@Value("${loganalyzer.query.plan-cache-size:1000}") int planCacheSize) {
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LogQuery, Query> eldest) {
+                return size() > planCacheSize;
+            }
+        };
+    }
+
+    public Query compile(LogQuery query) {
+        synchronized (plans) {
+            Query plan = plans.get(query);
+            if (plan != null) {
+                return plan;
+            }
+        }
+        Query plan = build(query);
+        synchronized (plans) {
+            plans.put(query, plan);
+        }
+        return plan;
+    }
+
+    private Query build(LogQuery query) {
+        BoolQuery.Builder bool = new BoolQuery.Builder();
+
+        keywordFilter(bool, "application", query.getApplications());
+        keywordFilter(bool, "severity", query.getSeverities().stream().map(Enum::name).toList());
+        keywordFilter(bool, "source", query.getSources());
+        keywordFilter(bool, "host", query.getHosts());
+
+        if (query.getStartTime() != null || query.getEndTime() != null) {
+            bool.filter(f -> f.range(r -> {
+                r.field("timestamp");
+                if (query.getStartTime() != null) {
+                    r.gte(JsonData.of(query.getStartTime().toString()));
+                }
+                if (query.getEndTime() != null) {
+                    r.lte(JsonData.of(query.getEndTime().toString()));
+                }
+                return r;
+            }));
+        }
+
+        query.getMetadata().forEach((key, value) -> bool.filter(f -> f.term(t -> t
+                .field("metadataPairs")
+                .value(Log.metadataPair(key, value)))));
+
+        for (String term : query.getText()) {
+            if (term.contains(" ")) {
+                bool.filter(f -> f.matchPhrase(m -> m.field("message").query(term)));
+            } else {
+                bool.filter(f -> f.match(m -> m.field("message").query(term).operator(Operator.And)));
+            }
+        }
+
+        return Query.of(q -> q.bool(bool.build()));
+    }
+
+    private void keywordFilter(BoolQuery.Builder bool, String field, List<String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        List<FieldValue> exact = new ArrayList<>();
+        List<Query> patterns = new ArrayList<>();
+        for (String value : values) {
+            if (value.contains("*")) {
+                patterns.add(Query.of(q -> q.wildcard(w -> w.field(field).value(value))));
+            } else {
+                exact.add(FieldValue.of(value));
+            }
+        }
+
+        if (patterns.isEmpty()) {
+            bool.filter(f -> f.terms(t -> t.field(field).terms(v -> v.value(exact))));
+            return;
+        }
+        // Any of the exact values or any of the patterns
+        List<Query> alternatives = new ArrayList<>(patterns);
+        if (!exact.isEmpty()) {
+            alternatives.add(Query.of(q -> q.terms(t -> t.field(field).terms(v -> v.value(exact)))));
+        }
+        bool.filter(f -> f.bool(b -> b.should(alternatives).minimumShouldMatch("1")));
+    }
+}
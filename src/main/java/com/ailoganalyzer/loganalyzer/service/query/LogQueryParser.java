@@ -0,0 +1,131 @@
+package com.ailoganalyzer.loganalyzer.service.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Parses the log query language into a {@link LogQuery}, for example:
+ * <pre>app:checkout severity:ERROR,CRITICAL host:web-* meta.region:eu "connection timeout" retry</pre>
+ * Terms are separated by whitespace and all must match. {@code field:v1,v2} matches any of the values;
+ * keyword values may use {@code *} wildcards. Supported fields are app (application), severity (level),
+ * source, host, from (start), to (end) and meta.&lt;key&gt;. Quoted text must appear as a phrase in the
+ * message and bare words must each appear in it. Within quotes, {@code \"} and {@code \\} stand for a
+ * quote and a backslash. A field may only be given once.
+ */
+public final class LogQueryParser {
+
+    private LogQueryParser() {
+    }
+
+    public static LogQuery parse(String text) {
+        if (text == null || text.isBlank()) {
+            return LogQuery.empty();
+        }
+
+        LogQuery.LogQueryBuilder builder = LogQuery.builder();
+        List<String> words = new ArrayList<>();
+        Map<String, String> metadata = new TreeMap<>();
+        List<String> seenFields = new ArrayList<>();
+
+        for (String token : tokenize(text)) {
+            int colon = token.startsWith("\"") ? -1 : token.indexOf(':');
+            if (colon <= 0) {
+                words.add(unquote(token));
+                continue;
+            }
+
+            String field = token.substring(0, colon).toLowerCase(Locale.ROOT);
+            String value = token.substring(colon + 1);
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException("Missing value for " + field);
+            }
+            if (seenFields.contains(field)) {
+                throw new IllegalArgumentException("Field " + field + " given more than once");
+            }
+            seenFields.add(field);
+
+            switch (field) {
+                case "app", "application" -> builder.applications(LogQuery.normalize(splitValues(value)));
+                case "severity", "level" -> builder.severities(LogQuery.normalizeSeverities(splitValues(value)));
+                case "source" -> builder.sources(LogQuery.normalize(splitValues(value)));
+                case "host" -> builder.hosts(LogQuery.normalize(splitValues(value)));
+                case "from", "start" -> builder.startTime(LogQuery.parseTime(unquote(value), field));
+                case "to", "end" -> builder.endTime(LogQuery.parseTime(unquote(value), field));
+                default -> {
+                    if (!field.startsWith("meta.") || field.length() == "meta.".length()) {
+                        throw new IllegalArgumentException("Unknown field: " + field);
+                    }
+                    // Keep the key's original case; metadata keys are matched exactly
+                    metadata.put(token.substring("meta.".length(), colon), unquote(value));
+                }
+            }
+        }
+
+        return builder
+                .text(LogQuery.normalize(words))
+                .metadata(Map.copyOf(metadata))
+                .build();
+    }
+
+    // Splits on whitespace outside double quotes; quotes and escapes stay on the token
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && quoted && i + 1 < text.length()) {
+                current.append(c).append(text.charAt(++i));
+            } else if (c == '"') {
+                quoted = !quoted;
+                current.append(c);
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (current.length() > 0) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quote in query");
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    // Splits on commas outside double quotes and unquotes each value
+    private static List<String> splitValues(String value) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && quoted && i + 1 < value.length()) {
+                current.append(value.charAt(++i));
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1).replaceAll("\\\\(.)", "$1");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,138 @@
+package com.ailoganalyzer.loganalyzer.service.retention;
+
+import com.ailoganalyzer.loganalyzer.model.Severity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Retention periods in days by application and severity, parsed from a comma-separated list of
+ * {@code [application/]severity=days} rules, for example {@code DEBUG=3,INFO=14,checkout/ERROR=180,audit/*=365}.
+ * Either side may be {@code *}. The most specific rule wins: application and severity, then application only,
+ * then severity only, then the default.
+ */
+public final class RetentionPolicies {
+
+    private static final String ANY = "*";
+
+    private final int defaultDays;
+    // Keyed by "application/SEVERITY", with * for either part
+    private final Map<String, Integer> rules;
+    private final Set<String> applications;
+
+    private RetentionPolicies(int defaultDays, Map<String, Integer> rules, Set<String> applications) {
+        this.defaultDays = defaultDays;
+        this.rules = rules;
+        this.applications = applications;
+    }
+
+    public static RetentionPolicies parse(String spec, int defaultDays) {
+        Map<String, Integer> rules = new HashMap<>();
+        Set<String> applications = new TreeSet<>();
+        if (spec != null) {
+            for (String rule : spec.split(",")) {
+                if (rule.isBlank()) {
+                    continue;
+                }
+                String[] parts = rule.trim().split("=", 2);
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Invalid retention rule: " + rule.trim());
+                }
+                String target = parts[0].trim();
+                int slash = target.lastIndexOf('/');
+                String application = slash >= 0 ? target.substring(0, slash).trim() : ANY;
+                String severity = (slash >= 0 ? target.substring(slash + 1) : target).trim().toUpperCase(Locale.ROOT);
+                if (!severity.equals(ANY)) {
+                    Severity.valueOf(severity);
+                }
+                int days = parseDays(parts[1].trim(), rule);
+                rules.put(application + "/" + severity, days);
+                if (!application.equals(ANY)) {
+                    applications.add(application);
+                }
+            }
+        }
+        return new RetentionPolicies(defaultDays, Map.copyOf(rules), Set.copyOf(applications));
+    }
+
+    private static int parseDays(String value, String rule) {
+        try {
+            int days = Integer.parseInt(value.endsWith("d") ? value.substring(0, value.length() - 1) : value);
+            if (days < 1) {
+                throw new IllegalArgumentException("Retention must be at least one day: " + rule.trim());
+            }
+            return days;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid retention rule: " + rule.trim(), e);
+        }
+    }
+
+    /**
+     * Retention for the given application, or for applications without rules of their own when null.
+     */
+    public int daysFor(String application, Severity severity) {
+        String app = application != null ? application : ANY;
+        Integer days = rules.get(app + "/" + severity.name());
+        if (days == null) {
+            days = rules.get(app + "/" + ANY);
+        }
+        if (days == null && application != null) {
+            days = rules.get(ANY + "/" + severity.name());
+        }
+        if (days == null) {
+            days = rules.get(ANY + "/" + ANY);
+        }
+        return days != null ? days : defaultDays;
+    }
+
+    /**
+     * Applications named by a rule; all others share the wildcard rules.
+     */
+    public Set<String> applications() {
+        return applications;
+    }
+
+    public int maxDays() {
+        int max = defaultDays;
+        for (int days : rules.values()) {
+            max = Math.max(max, days);
+        }
+        return max;
+    }
+
+    public int minDays() {
+        int min = defaultDays;
+        for (int days : rules.values()) {
+            min = Math.min(min, days);
+        }
+        return min;
+    }
+
+    /**
+     * One entry per (application, severity) whose retention is shorter than {@link #maxDays()}.
+     * A null application stands for every application not in {@link #applications()}.
+     */
+    public List<Rule> shorterThanMax() {
+        int max = maxDays();
+        List<Rule> shorter = new ArrayList<>();
+        List<String> targets = new ArrayList<>(applications);
+        targets.add(null);
+        for (String application : targets) {
+            for (Severity severity : Severity.values()) {
+                int days = daysFor(application, severity);
+                if (days < max) {
+                    shorter.add(new Rule(application, severity, days));
+                }
+            }
+        }
+        return shorter;
+    }
+
+    public record Rule(String application, Severity severity, int days) {
+    }
+}
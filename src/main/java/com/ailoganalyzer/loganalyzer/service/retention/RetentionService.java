@@ -0,0 +1,236 @@
+package com.ailoganalyzer.loganalyzer.service.retention;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
+import co.elastic.clients.json.JsonData;
+import com.ailoganalyzer.loganalyzer.service.LogIndexRouter;
+import com.ailoganalyzer.loganalyzer.service.LogPartitionManager;
+import com.ailoganalyzer.loganalyzer.service.rollup.LogRollupStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Applies the retention policies once a day. Completed days are first rolled up into per-minute counts,
+ * then raw logs past their retention are removed: whole daily partitions and indices where every log in
+ * them has expired, and throttled batch deletes (PostgreSQL) and delete-by-query (Elasticsearch) for
+ * severities and applications kept for less time than the longest policy. Nothing is deleted from a day
+ * that has not been rolled up yet.
+ */
+@Service
+@Slf4j
+public class RetentionService {
+
+    private static final long TASK_POLL_INTERVAL_MS = 5000;
+
+    private final LogRollupStore logRollupStore;
+    private final LogPartitionManager logPartitionManager;
+    private final LogIndexRouter logIndexRouter;
+    private final ElasticsearchClient elasticsearchClient;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final RetentionPolicies policies;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${loganalyzer.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${loganalyzer.retention.delete-batch-size:5000}")
+    private int deleteBatchSize;
+
+    @Value("${loganalyzer.retention.delete-pause-ms:100}")
+    private long deletePauseMs;
+
+    // Throttle for Elasticsearch delete-by-query, in documents per second
+    @Value("${loganalyzer.retention.es-requests-per-second:2000}")
+    private float esRequestsPerSecond;
+
+    public RetentionService(LogRollupStore logRollupStore,
+                            LogPartitionManager logPartitionManager,
+                            LogIndexRouter logIndexRouter,
+                            ElasticsearchClient elasticsearchClient,
+                            NamedParameterJdbcTemplate jdbcTemplate,
+                            @Value("${loganalyzer.retention.policies:DEBUG=3}") String policies,
+                            @Value("${loganalyzer.retention.default-days:90}") int defaultDays) {
+        this.logRollupStore = logRollupStore;
+        this.logPartitionManager = logPartitionManager;
+        this.logIndexRouter = logIndexRouter;
+        this.elasticsearchClient = elasticsearchClient;
+        this.jdbcTemplate = jdbcTemplate;
+        this.policies = RetentionPolicies.parse(policies, defaultDays);
+    }
+
+    @Scheduled(cron = "${loganalyzer.retention.cron:0 30 1 * * *}", zone = "UTC")
+    public void scheduledRun() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Retention run already in progress");
+            return;
+        }
+        try {
+            Instant now = Instant.now();
+            LocalDate rolledUpThrough = rollUpCompletedDays(LocalDate.now(ZoneOffset.UTC).minusDays(1));
+            if (rolledUpThrough == null) {
+                return;
+            }
+            // Logs from days not yet rolled up are kept whatever their policy says
+            Instant deletableBefore = rolledUpThrough.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+
+            Instant maxCutoff = earlier(now.minus(Duration.ofDays(policies.maxDays())), deletableBefore);
+            LocalDate firstKeptDay = LocalDate.ofInstant(maxCutoff, ZoneOffset.UTC);
+            logPartitionManager.dropPartitionsBefore(firstKeptDay);
+            logIndexRouter.deleteIndicesBefore(firstKeptDay);
+            // Rows outside the daily partitions, e.g. in the default partition
+            deleteFromDatabase(maxCutoff, null, null);
+
+            for (RetentionPolicies.Rule rule : policies.shorterThanMax()) {
+                Instant cutoff = earlier(now.minus(Duration.ofDays(rule.days())), deletableBefore);
+                long deleted = deleteFromDatabase(cutoff, rule.application(), rule.severity().name());
+                deleteFromElasticsearch(cutoff, rule.application(), rule.severity().name());
+                if (deleted > 0) {
+                    log.info("Retention removed {} {} logs of {} older than {}", deleted, rule.severity(),
+                            rule.application() != null ? rule.application() : "other applications", cutoff);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Retention run failed: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Rolls up every complete day since the last rolled-up day. Returns the last day rolled up.
+     */
+    private LocalDate rollUpCompletedDays(LocalDate lastCompleteDay) {
+        LocalDate rolledUpThrough = logRollupStore.rolledUpThrough();
+        LocalDate day;
+        if (rolledUpThrough != null) {
+            day = rolledUpThrough.plusDays(1);
+        } else {
+            Timestamp oldest = jdbcTemplate.getJdbcTemplate().queryForObject("SELECT min(timestamp) FROM logs", Timestamp.class);
+            if (oldest == null) {
+                return null;
+            }
+            day = LocalDate.ofInstant(oldest.toInstant(), ZoneOffset.UTC);
+        }
+        for (; !day.isAfter(lastCompleteDay); day = day.plusDays(1)) {
+            int rows = logRollupStore.rollUpDay(day);
+            logRollupStore.markRolledUpThrough(day);
+            rolledUpThrough = day;
+            log.info("Rolled up logs of {} into {} per-minute rows", day, rows);
+        }
+        return rolledUpThrough;
+    }
+
+    /**
+     * Deletes matching logs older than the cutoff in batches, pausing between batches so the delete never
+     * monopolizes the database. A null application means every application without a rule of its own.
+     */
+    private long deleteFromDatabase(Instant cutoff, String application, String severity) {
+        StringBuilder where = new StringBuilder("timestamp < :cutoff");
+        MapSqlParameterSource params = new MapSqlParameterSource("cutoff", Timestamp.from(cutoff))
+                .addValue("limit", deleteBatchSize);
+        if (severity != null) {
+            where.append(" AND CAST(severity AS VARCHAR) = :severity");
+            params.addValue("severity", severity);
+            if (application != null) {
+                where.append(" AND application = :application");
+                params.addValue("application", application);
+            } else if (!policies.applications().isEmpty()) {
+                where.append(" AND application NOT IN (:applications)");
+                params.addValue("applications", policies.applications());
+            }
+        }
+        String sql = "DELETE FROM logs WHERE (id, timestamp) IN " +
+                "(SELECT id, timestamp FROM logs WHERE " + where + " LIMIT :limit)";
+
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(sql, params);
+            total += deleted;
+            if (deleted == deleteBatchSize) {
+                sleep(deletePauseMs);
+            }
+        } while (deleted == deleteBatchSize);
+        return total;
+    }
+
+    private void deleteFromElasticsearch(Instant cutoff, String application, String severity) throws IOException {
+        List<String> indices = logIndexRouter.indicesFor(null, cutoff);
+        if (indices.isEmpty()) {
+            return;
+        }
+        BoolQuery.Builder bool = new BoolQuery.Builder()
+                .filter(f -> f.range(r -> r.field("timestamp").lt(JsonData.of(cutoff.toString()))))
+                .filter(f -> f.term(t -> t.field("severity").value(severity)));
+        if (application != null) {
+            bool.filter(f -> f.term(t -> t.field("application").value(application)));
+        } else if (!policies.applications().isEmpty()) {
+            List<FieldValue> excluded = policies.applications().stream().map(FieldValue::of).toList();
+            bool.mustNot(m -> m.terms(t -> t.field("application").terms(v -> v.value(excluded))));
+        }
+        Query query = Query.of(q -> q.bool(bool.build()));
+
+        DeleteByQueryResponse response = elasticsearchClient.deleteByQuery(d -> d
+                .index(List.of(logIndexRouter.coordinatesFor(indices).getIndexNames()))
+                .query(query)
+                .conflicts(Conflicts.Proceed)
+                .ignoreUnavailable(true)
+                .requestsPerSecond(esRequestsPerSecond)
+                .waitForCompletion(false));
+        awaitTask(response.task());
+    }
+
+    // Runs server-side as a task; waiting keeps one throttled delete running at a time
+    private void awaitTask(String taskId) throws IOException {
+        if (taskId == null) {
+            return;
+        }
+        GetTasksResponse task = elasticsearchClient.tasks().get(g -> g.taskId(taskId));
+        while (!task.completed()) {
+            sleep(TASK_POLL_INTERVAL_MS);
+            task = elasticsearchClient.tasks().get(g -> g.taskId(taskId));
+        }
+        if (task.error() != null) {
+            throw new UncheckedIOException(new IOException("Delete-by-query failed: " + task.error().reason()));
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during retention", e);
+        }
+    }
+
+    private static Instant earlier(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
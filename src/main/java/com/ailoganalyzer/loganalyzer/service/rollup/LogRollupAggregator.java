@@ -0,0 +1,73 @@
+package com.ailoganalyzer.loganalyzer.service.rollup;
+
+import com.ailoganalyzer.loganalyzer.model.Log;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts consumed logs per (minute, application, severity, host) in memory and flushes the counts to
+ * {@link LogRollupStore} every few seconds, so the rollups stay current without one write per log.
+ * A redelivered Kafka batch is counted twice; the nightly recompute of the day corrects that.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LogRollupAggregator {
+
+    private final LogRollupStore logRollupStore;
+
+    private final ConcurrentHashMap<LogRollupStore.RollupKey, Long> pending = new ConcurrentHashMap<>();
+
+    public void record(List<Log> logs) {
+        // Pre-aggregate the batch so the shared map is touched once per key
+        Map<LogRollupStore.RollupKey, Long> batch = new HashMap<>();
+        for (Log logEntry : logs) {
+            if (logEntry.getTimestamp() == null || logEntry.getApplication() == null || logEntry.getSeverity() == null) {
+                continue;
+            }
+            LogRollupStore.RollupKey key = new LogRollupStore.RollupKey(
+                    logEntry.getTimestamp().truncatedTo(ChronoUnit.MINUTES),
+                    logEntry.getApplication(),
+                    logEntry.getSeverity().name(),
+                    logEntry.getHost() != null ? logEntry.getHost() : "");
+            batch.merge(key, 1L, Long::sum);
+        }
+        batch.forEach((key, count) -> pending.merge(key, count, Long::sum));
+    }
+
+    @Scheduled(fixedDelayString = "${loganalyzer.rollups.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // remove() is atomic per key, so counts recorded during the flush are kept for the next one
+        Map<LogRollupStore.RollupKey, Long> counts = new HashMap<>();
+        for (LogRollupStore.RollupKey key : pending.keySet()) {
+            Long count = pending.remove(key);
+            if (count != null) {
+                counts.put(key, count);
+            }
+        }
+        try {
+            logRollupStore.addCounts(counts);
+            log.debug("Flushed {} rollup rows", counts.size());
+        } catch (Exception e) {
+            log.warn("Could not flush {} rollup rows, retrying on the next flush: {}", counts.size(), e.getMessage());
+            counts.forEach((key, count) -> pending.merge(key, count, Long::sum));
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,172 @@
+package com.ailoganalyzer.loganalyzer.service.rollup;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Per-minute log counts by application, severity and host in the log_rollups table. They outlive the raw
+ * logs, so long-range charts keep working after retention has removed the logs themselves.
+ * <p>
+ * Rows are written twice: incrementally as logs are consumed ({@link #addCounts}), and once more by the
+ * nightly recompute of each completed day ({@link #rollUpDay}), which replaces the incremental counts with
+ * exact ones from PostgreSQL.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LogRollupStore {
+
+    public record RollupKey(Instant minute, String application, String severity, String host) {
+    }
+
+    /**
+     * Counts summed per time bucket; dimensions not grouped by are null.
+     */
+    public record BucketCount(Instant bucket, String application, String severity, String host, long count) {
+    }
+
+    public enum Dimension {
+        APPLICATION("application"), SEVERITY("severity"), HOST("host");
+
+        private final String column;
+
+        Dimension(String column) {
+            this.column = column;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @PostConstruct
+    void createTables() {
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS log_rollups (" +
+                    "minute TIMESTAMP WITH TIME ZONE NOT NULL, " +
+                    "application VARCHAR(255) NOT NULL, " +
+                    "severity VARCHAR(16) NOT NULL, " +
+                    "host VARCHAR(255) NOT NULL DEFAULT '', " +
+                    "count BIGINT NOT NULL, " +
+                    "PRIMARY KEY (minute, application, severity, host))");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS log_rollup_progress (" +
+                    "id INTEGER PRIMARY KEY, rolled_up_through DATE NOT NULL)");
+        } catch (Exception e) {
+            log.warn("Could not create rollup tables: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes the rollups for one UTC day from the raw logs in PostgreSQL, overwriting existing rows,
+     * so running it again for the same day is harmless. Returns the number of rollup rows written.
+     */
+    public int rollUpDay(LocalDate day) {
+        Instant from = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant to = day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        return jdbcTemplate.update("INSERT INTO log_rollups (minute, application, severity, host, count) " +
+                        "SELECT date_trunc('minute', timestamp), application, CAST(severity AS VARCHAR), COALESCE(host, ''), count(*) " +
+                        "FROM logs WHERE timestamp >= ? AND timestamp < ? " +
+                        "GROUP BY 1, 2, 3, 4 " +
+                        "ON CONFLICT (minute, application, severity, host) DO UPDATE SET count = EXCLUDED.count",
+                Timestamp.from(from), Timestamp.from(to));
+    }
+
+    /**
+     * The last day whose rollups were computed from complete raw data, or null if none was.
+     */
+    public LocalDate rolledUpThrough() {
+        return jdbcTemplate.query("SELECT rolled_up_through FROM log_rollup_progress WHERE id = 1",
+                rs -> rs.next() ? rs.getDate(1).toLocalDate() : null);
+    }
+
+    public void markRolledUpThrough(LocalDate day) {
+        jdbcTemplate.update("INSERT INTO log_rollup_progress (id, rolled_up_through) VALUES (1, ?) " +
+                "ON CONFLICT (id) DO UPDATE SET rolled_up_through = EXCLUDED.rolled_up_through", Date.valueOf(day));
+    }
+
+    /**
+     * Adds the counts to the existing rows in one batch. Counts are added, not replaced, so several
+     * consumers can flush counts for the same minute.
+     */
+    public void addCounts(Map<RollupKey, Long> counts) {
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> rows.add(new Object[]{
+                Timestamp.from(key.minute()), key.application(), key.severity(), key.host(), count}));
+        jdbcTemplate.batchUpdate("INSERT INTO log_rollups (minute, application, severity, host, count) " +
+                "VALUES (?, ?, ?, ?, ?) " +
+                "ON CONFLICT (minute, application, severity, host) DO UPDATE SET count = log_rollups.count + EXCLUDED.count", rows);
+    }
+
+    /**
+     * Sums the counts in [from, to) into buckets of {@code bucketSeconds}, aligned to the epoch, grouped by
+     * the given dimensions, and hands each row to {@code consumer} in bucket order. Empty filters match
+     * everything. Only the {@code maxSeries} groups with the largest totals in the range are read.
+     */
+    public void countsByBucket(Instant from, Instant to, long bucketSeconds, Collection<Dimension> groupBy,
+                               Collection<String> applications, Collection<String> severities,
+                               Collection<String> hosts, int maxSeries, Consumer<BucketCount> consumer) {
+        StringBuilder where = new StringBuilder(" WHERE minute >= :from AND minute < :to");
+        MapSqlParameterSource params = new MapSqlParameterSource("bucket", bucketSeconds)
+                .addValue("from", Timestamp.from(from))
+                .addValue("to", Timestamp.from(to))
+                .addValue("maxSeries", maxSeries);
+        if (applications != null && !applications.isEmpty()) {
+            where.append(" AND application IN (:applications)");
+            params.addValue("applications", applications);
+        }
+        if (severities != null && !severities.isEmpty()) {
+            where.append(" AND severity IN (:severities)");
+            params.addValue("severities", severities);
+        }
+        if (hosts != null && !hosts.isEmpty()) {
+            where.append(" AND host IN (:hosts)");
+            params.addValue("hosts", hosts);
+        }
+
+        List<String> columns = new ArrayList<>();
+        for (Dimension dimension : Dimension.values()) {
+            if (groupBy.contains(dimension)) {
+                columns.add(dimension.column);
+            }
+        }
+        String dimensions = columns.stream().map(column -> ", " + column).collect(Collectors.joining());
+        StringBuilder sql = new StringBuilder("WITH filtered AS (SELECT * FROM log_rollups").append(where).append(")");
+        String source = "filtered";
+        if (!columns.isEmpty()) {
+            // The grouping columns are NOT NULL, so the join never drops a row
+            sql.append(", top_series AS (SELECT ").append(String.join(", ", columns))
+                    .append(" FROM filtered GROUP BY ").append(String.join(", ", columns))
+                    .append(" ORDER BY sum(count) DESC LIMIT :maxSeries)");
+            source = "filtered JOIN top_series USING (" + String.join(", ", columns) + ")";
+        }
+        sql.append(" SELECT to_timestamp(floor(extract(epoch FROM minute) / :bucket) * :bucket) AS bucket")
+                .append(dimensions)
+                .append(", sum(count) AS count FROM ").append(source)
+                .append(" GROUP BY 1").append(dimensions)
+                .append(" ORDER BY 1");
+
+        namedParameterJdbcTemplate.query(sql.toString(), params, (RowCallbackHandler) rs -> consumer.accept(new BucketCount(
+                rs.getTimestamp("bucket").toInstant(),
+                groupBy.contains(Dimension.APPLICATION) ? rs.getString("application") : null,
+                groupBy.contains(Dimension.SEVERITY) ? rs.getString("severity") : null,
+                groupBy.contains(Dimension.HOST) ? rs.getString("host") : null,
+                rs.getLong("count"))));
+    }
+}
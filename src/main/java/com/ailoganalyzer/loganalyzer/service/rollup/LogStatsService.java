@@ -0,0 +1,147 @@
+package com.ailoganalyzer.loganalyzer.service.rollup;
+
+import com.ailoganalyzer.loganalyzer.dto.LogStats;
+import com.ailoganalyzer.loganalyzer.dto.LogStatsPoint;
+import com.ailoganalyzer.loganalyzer.dto.LogStatsSeries;
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Time series of log counts for dashboards, read from the per-minute rollups instead of the raw logs.
+ * Without an explicit interval, the smallest bucket size giving at most maxPoints buckets is used. When an
+ * explicit interval gives more buckets than that, each series is downsampled with LTTB.
+ */
+@Service
+@RequiredArgsConstructor
+public class LogStatsService {
+
+    private static final Pattern INTERVAL = Pattern.compile("(\\d+)([mhdw])");
+
+    private static final List<String> NICE_INTERVALS = List.of(
+            "1m", "2m", "5m", "10m", "15m", "30m", "1h", "2h", "3h", "6h", "12h", "1d", "7d");
+
+    private record SeriesKey(String application, String severity, String host) {
+    }
+
+    private final LogRollupStore logRollupStore;
+
+    @Value("${loganalyzer.stats.max-points:500}")
+    private int defaultMaxPoints;
+
+    // Upper bound on buckets read per series before downsampling
+    @Value("${loganalyzer.stats.max-buckets:100000}")
+    private int maxBuckets;
+
+    // Only the series with the largest totals are returned
+    @Value("${loganalyzer.stats.max-series:50}")
+    private int maxSeries;
+
+    public LogStats stats(Instant from, Instant to, Collection<LogRollupStore.Dimension> groupBy, String interval,
+                          Collection<String> applications, Collection<Severity> severities, Collection<String> hosts,
+                          Integer maxPoints) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Range start must be before its end");
+        }
+        int points = maxPoints != null ? maxPoints : defaultMaxPoints;
+        if (points < 3) {
+            throw new IllegalArgumentException("maxPoints must be at least 3");
+        }
+        if (interval == null) {
+            interval = NICE_INTERVALS.stream()
+                    .filter(candidate -> bucketCount(from, to, intervalSeconds(candidate)) <= points)
+                    .findFirst()
+                    .orElse(NICE_INTERVALS.get(NICE_INTERVALS.size() - 1));
+        }
+        long bucketSeconds = intervalSeconds(interval);
+
+        long firstBucket = firstBucket(from, bucketSeconds);
+        long bucketCount = bucketCount(from, to, bucketSeconds);
+        if (bucketCount > maxBuckets) {
+            throw new IllegalArgumentException("Interval " + interval + " gives " + bucketCount +
+                    " buckets for this range; the limit is " + maxBuckets);
+        }
+        int buckets = (int) bucketCount;
+
+        List<String> severityNames = severities != null ? severities.stream().map(Severity::name).toList() : null;
+        // One dense array per series, with zeros for empty buckets; the store only returns the largest series
+        Map<SeriesKey, long[]> series = new LinkedHashMap<>();
+        logRollupStore.countsByBucket(from, to, bucketSeconds, groupBy, applications, severityNames, hosts, maxSeries,
+                row -> {
+                    long[] counts = series.computeIfAbsent(
+                            new SeriesKey(row.application(), row.severity(), row.host()), key -> new long[buckets]);
+                    counts[(int) ((row.bucket().getEpochSecond() - firstBucket) / bucketSeconds)] += row.count();
+                });
+
+        boolean downsampled = buckets > points;
+        List<LogStatsSeries> result = new ArrayList<>();
+        series.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<SeriesKey, long[]> entry) -> total(entry.getValue())).reversed())
+                .forEach(entry -> result.add(toSeries(entry.getKey(), entry.getValue(), firstBucket, bucketSeconds, points)));
+        return new LogStats(from, to, interval, downsampled, result);
+    }
+
+    private LogStatsSeries toSeries(SeriesKey key, long[] counts, long firstBucket, long bucketSeconds, int maxPoints) {
+        long[] x = new long[counts.length];
+        double[] y = new double[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            x[i] = firstBucket + i * bucketSeconds;
+            y[i] = counts[i];
+        }
+        int[] kept = Lttb.downsample(x, y, maxPoints);
+        List<LogStatsPoint> points = new ArrayList<>(kept.length);
+        for (int i : kept) {
+            points.add(new LogStatsPoint(Instant.ofEpochSecond(x[i]), counts[i]));
+        }
+        return new LogStatsSeries(key.application(),
+                key.severity() != null ? Severity.valueOf(key.severity()) : null,
+                key.host(), total(counts), points);
+    }
+
+    /**
+     * Parses an interval such as "5m", "1h", "1d" or "1w" into seconds.
+     */
+    public static long intervalSeconds(String interval) {
+        Matcher matcher = INTERVAL.matcher(interval.trim());
+        if (!matcher.matches() || Long.parseLong(matcher.group(1)) == 0) {
+            throw new IllegalArgumentException("Invalid interval: " + interval + " (expected e.g. 5m, 1h, 1d)");
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        return switch (matcher.group(2)) {
+            case "m" -> Duration.ofMinutes(amount).toSeconds();
+            case "h" -> Duration.ofHours(amount).toSeconds();
+            case "d" -> Duration.ofDays(amount).toSeconds();
+            default -> Duration.ofDays(7 * amount).toSeconds();
+        };
+    }
+
+    // Buckets are aligned to the epoch, as in the query, so the first one may start before the range
+    private static long firstBucket(Instant from, long bucketSeconds) {
+        return Math.floorDiv(from.getEpochSecond(), bucketSeconds) * bucketSeconds;
+    }
+
+    private static long bucketCount(Instant from, Instant to, long bucketSeconds) {
+        long seconds = to.getEpochSecond() - firstBucket(from, bucketSeconds);
+        return (seconds + bucketSeconds - 1) / bucketSeconds;
+    }
+
+    private static long total(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,63 @@
+package com.ailoganalyzer.loganalyzer.service.rollup;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling. Keeps the first and last points and, from each of the
+ * buckets in between, the point forming the largest triangle with the previously kept point and the
+ * average of the next bucket. Peaks and dips survive, unlike with plain averaging.
+ */
+final class Lttb {
+
+    private Lttb() {
+    }
+
+    /**
+     * Returns the indexes of the points to keep, in ascending order. {@code x} must be ascending.
+     */
+    static int[] downsample(long[] x, double[] y, int threshold) {
+        int length = x.length;
+        if (threshold >= length || threshold < 3) {
+            int[] all = new int[length];
+            for (int i = 0; i < length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        int[] kept = new int[threshold];
+        int keptCount = 0;
+        kept[keptCount++] = 0;
+
+        double bucketSize = (double) (length - 2) / (threshold - 2);
+        int a = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket, the third corner of the triangle
+            int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, length);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += x[i];
+                avgY += y[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((x[a] - avgX) * (y[i] - y[a]) - (x[a] - x[i]) * (avgY - y[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+            kept[keptCount++] = maxIndex;
+            a = maxIndex;
+        }
+        kept[keptCount] = length - 1;
+        return kept;
+    }
+}
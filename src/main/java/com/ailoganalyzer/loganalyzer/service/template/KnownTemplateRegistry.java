@@ -0,0 +1,142 @@
+package com.ailoganalyzer.loganalyzer.service.template;
+
+import com.ailoganalyzer.loganalyzer.model.ErrorTemplate;
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.repository.jpa.ErrorTemplateRepository;
+import com.ailoganalyzer.loganalyzer.service.template.LogTemplateMiner.TemplateMatch;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of every error template ever seen, persisted in the error_templates table and keyed by the
+ * template ID. Known templates are loaded at startup into a concurrent set, so the per-log check on the
+ * consume path takes no lock, and seeded into the {@link LogTemplateMiner} with their IDs, so that
+ * messages match their settled templates under the same ID after a restart. The stored template text
+ * follows the cluster as it widens. Templates registered by other nodes are picked up every
+ * loganalyzer.templates.refresh-interval-ms.
+ *
+ * The first occurrence of a template is inserted with ON CONFLICT DO NOTHING, so exactly one node in the
+ * cluster sees it as new. Later occurrences are counted in memory and flushed periodically.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KnownTemplateRegistry {
+
+    private final ErrorTemplateRepository errorTemplateRepository;
+    private final LogTemplateMiner logTemplateMiner;
+
+    // How far back refresh looks, as last_seen holds event times rather than insert times
+    @Value("${loganalyzer.templates.refresh-lookback-ms:600000}")
+    private long refreshLookbackMs;
+
+    private final Set<Long> knownFingerprints = ConcurrentHashMap.newKeySet();
+    // Templates this node is inserting right now
+    private final Set<Long> registering = ConcurrentHashMap.newKeySet();
+    private volatile Instant lastRefresh;
+
+    // Occurrences of known templates not yet written to the database
+    private final Map<Long, Occurrences> pending = new ConcurrentHashMap<>();
+
+    // The template as of the latest occurrence, which may have widened since it was registered
+    private record Occurrences(long count, Instant lastSeen, String template) {
+        // other holds the later occurrences
+        Occurrences plus(Occurrences other) {
+            return new Occurrences(count + other.count,
+                    lastSeen.isAfter(other.lastSeen) ? lastSeen : other.lastSeen, other.template);
+        }
+    }
+
+    @PostConstruct
+    void load() {
+        lastRefresh = Instant.now();
+        List<ErrorTemplate> templates = errorTemplateRepository.findAll();
+        templates.forEach(this::learn);
+        log.info("Loaded {} known error templates", templates.size());
+    }
+
+    @Scheduled(fixedDelayString = "${loganalyzer.templates.refresh-interval-ms:60000}")
+    public void refresh() {
+        Instant since = lastRefresh.minus(Duration.ofMillis(refreshLookbackMs));
+        lastRefresh = Instant.now();
+        try {
+            for (ErrorTemplate template : errorTemplateRepository.findByLastSeenAfter(since)) {
+                if (!knownFingerprints.contains(template.getFingerprint())) {
+                    learn(template);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error refreshing known error templates: {}", e.getMessage(), e);
+        }
+    }
+
+    private void learn(ErrorTemplate template) {
+        knownFingerprints.add(template.getFingerprint());
+        if (template.getTemplate() != null) {
+            logTemplateMiner.seed(String.format("%016x", template.getFingerprint()), template.getTemplate());
+        }
+    }
+
+    /**
+     * Records an occurrence of the log's template and returns true if this is the first time
+     * the template has been seen anywhere in the cluster. A log that joined a cluster started by a
+     * message of another severity registers the template but is not reported.
+     */
+    public boolean observe(Log logEntry, TemplateMatch template) {
+        long fingerprint = Long.parseUnsignedLong(template.templateId(), 16);
+        Instant seen = logEntry.getTimestamp() != null ? logEntry.getTimestamp() : Instant.now();
+
+        if (knownFingerprints.contains(fingerprint) || !registering.add(fingerprint)) {
+            pending.merge(fingerprint, new Occurrences(1, seen, template.template()), Occurrences::plus);
+            return false;
+        }
+        try {
+            boolean registered;
+            try {
+                registered = errorTemplateRepository.insertIfAbsent(
+                        fingerprint, template.template(), logEntry.getApplication(), seen) == 1;
+            } catch (Exception e) {
+                // Leave it unknown so the next occurrence tries again
+                log.error("Error registering template {}: {}", template.templateId(), e.getMessage(), e);
+                return false;
+            }
+            knownFingerprints.add(fingerprint);
+            if (!registered) {
+                pending.merge(fingerprint, new Occurrences(1, seen, template.template()), Occurrences::plus);
+            }
+            return registered && template.created();
+        } finally {
+            registering.remove(fingerprint);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${loganalyzer.templates.flush-interval-ms:10000}")
+    public void flushOccurrences() {
+        for (Long fingerprint : pending.keySet()) {
+            Occurrences occurrences = pending.remove(fingerprint);
+            if (occurrences == null) {
+                continue;
+            }
+            try {
+                errorTemplateRepository.recordOccurrences(fingerprint, occurrences.count(), occurrences.lastSeen(),
+                        occurrences.template());
+            } catch (Exception e) {
+                // Anything recorded since is newer than what failed
+                pending.merge(fingerprint, occurrences, (newer, failed) -> failed.plus(newer));
+                log.error("Error flushing template occurrences: {}", e.getMessage(), e);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.ailoganalyzer.loganalyzer.service.template;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental log template miner following the Drain algorithm.
+ * Messages are tokenized on whitespace and routed through a fixed-depth tree: first by token count,
+ * then by their leading tokens. Each leaf holds at most max-clusters-per-leaf template clusters, evicting
+ * the least recently matched, and a message joins the most similar cluster above the similarity threshold
+ * or starts a new one. The work per message is bounded by the tree depth and the leaf size, not by the
+ * number of templates seen so far.
+ *
+ * Tokens that contain a digit (numbers, IPs, hex IDs, UUIDs, durations, timestamps) and the value half
+ * of key=value tokens are masked as wildcards before routing. A template ID is a 64-bit hash of the
+ * template a cluster was created with, and it stays fixed when later merges widen the template, so logs
+ * already indexed under an ID keep grouping with the ones that follow. Templates can be
+ * {@link #seed seeded} together with their ID, so that persisted templates keep their ID and are matched
+ * in their settled form from the first message after a restart.
+ */
+@Component
+public class LogTemplateMiner {
+
+    public static final String WILDCARD = "<*>";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int prefixDepth;
+    private final double similarityThreshold;
+    private final int maxChildren;
+    private final int maxClustersPerLeaf;
+
+    // One subtree per token count; each is locked independently so messages of different lengths never contend
+    private final Map<Integer, Node> roots = new ConcurrentHashMap<>();
+
+    public LogTemplateMiner(
+            @Value("${loganalyzer.templates.prefix-depth:2}") int prefixDepth,
+            @Value("${loganalyzer.templates.similarity-threshold:0.5}") double similarityThreshold,
+            @Value("${loganalyzer.templates.max-children:100}") int maxChildren,
+            @Value("${loganalyzer.templates.max-clusters-per-leaf:200}") int maxClustersPerLeaf) {
+        this.prefixDepth = prefixDepth;
+        this.similarityThreshold = similarityThreshold;
+        this.maxChildren = maxChildren;
+        this.maxClustersPerLeaf = maxClustersPerLeaf;
+    }
+
+    /**
+     * The template a message was assigned to. {@code created} is true when the message started a new
+     * cluster rather than joining or widening an existing one.
+     */
+    public record TemplateMatch(String templateId, String template, boolean created) {
+    }
+
+    public TemplateMatch match(String message) {
+        String[] tokens = mask(message);
+        Node root = roots.computeIfAbsent(tokens.length, length -> new Node());
+
+        synchronized (root) {
+            Node leaf = leafOf(root, tokens);
+            Cluster cluster = bestMatch(leaf.clusters, tokens);
+            boolean created = cluster == null;
+            if (created) {
+                cluster = new Cluster(fingerprint(tokens), tokens);
+                add(leaf, cluster);
+            } else {
+                cluster.merge(tokens);
+                // Most recently matched last, so eviction takes the head
+                leaf.clusters.remove(cluster);
+                leaf.clusters.add(cluster);
+            }
+            return new TemplateMatch(cluster.id, cluster.template(), created);
+        }
+    }
+
+    /**
+     * Adds a known template under its ID, such as one persisted by an earlier run, unless the same
+     * template is already present.
+     */
+    public void seed(String templateId, String template) {
+        String[] tokens = mask(template);
+        Node root = roots.computeIfAbsent(tokens.length, length -> new Node());
+
+        synchronized (root) {
+            Node leaf = leafOf(root, tokens);
+            for (Cluster cluster : leaf.clusters) {
+                if (Arrays.equals(cluster.tokens, tokens)) {
+                    return;
+                }
+            }
+            add(leaf, new Cluster(templateId, tokens));
+        }
+    }
+
+    private Node leafOf(Node root, String[] tokens) {
+        Node leaf = root;
+        for (int depth = 0; depth < Math.min(prefixDepth, tokens.length); depth++) {
+            String key = tokens[depth];
+            Node child = leaf.children.get(key);
+            if (child == null) {
+                if (leaf.children.size() >= maxChildren) {
+                    key = WILDCARD;
+                    child = leaf.children.get(key);
+                }
+                if (child == null) {
+                    child = new Node();
+                    leaf.children.put(key, child);
+                }
+            }
+            leaf = child;
+        }
+        return leaf;
+    }
+
+    private void add(Node leaf, Cluster cluster) {
+        if (leaf.clusters.size() >= maxClustersPerLeaf) {
+            leaf.clusters.remove(0);
+        }
+        leaf.clusters.add(cluster);
+    }
+
+    /**
+     * Fingerprint of the message after masking, without touching the tree. Messages that differ only in
+     * their variable parts share a fingerprint.
+     */
+    public static String fingerprintOf(String message) {
+        return fingerprint(mask(message));
+    }
+
+    private Cluster bestMatch(List<Cluster> clusters, String[] tokens) {
+        Cluster best = null;
+        double bestSimilarity = -1;
+        int bestWildcards = -1;
+        for (Cluster cluster : clusters) {
+            int equal = 0;
+            int wildcards = 0;
+            for (int i = 0; i < tokens.length; i++) {
+                if (WILDCARD.equals(cluster.tokens[i])) {
+                    wildcards++;
+                } else if (cluster.tokens[i].equals(tokens[i])) {
+                    equal++;
+                }
+            }
+            double similarity = tokens.length == 0 ? 1.0 : (double) equal / tokens.length;
+            if (similarity > bestSimilarity || (similarity == bestSimilarity && wildcards > bestWildcards)) {
+                best = cluster;
+                bestSimilarity = similarity;
+                bestWildcards = wildcards;
+            }
+        }
+        return bestSimilarity >= similarityThreshold ? best : null;
+    }
+
+    private static String[] mask(String message) {
+        if (message == null || message.isBlank()) {
+            return new String[0];
+        }
+        String[] tokens = WHITESPACE.split(message.trim());
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i];
+            int equals = token.indexOf('=');
+            if (equals > 0 && equals < token.length() - 1) {
+                tokens[i] = token.substring(0, equals + 1) + WILDCARD;
+            } else if (containsDigit(token)) {
+                tokens[i] = WILDCARD;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean containsDigit(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.isDigit(token.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // FNV-1a over the masked tokens, rendered as 16 hex digits
+    private static String fingerprint(String[] tokens) {
+        long hash = 0xcbf29ce484222325L;
+        for (String token : tokens) {
+            for (int i = 0; i < token.length(); i++) {
+                hash ^= token.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= ' ';
+            hash *= 0x100000001b3L;
+        }
+        return String.format("%016x", hash);
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<Cluster> clusters = new ArrayList<>();
+    }
+
+    private static final class Cluster {
+        private final String id;
+        private final String[] tokens;
+
+        private Cluster(String id, String[] tokens) {
+            this.id = id;
+            this.tokens = tokens.clone();
+        }
+
+        private void merge(String[] other) {
+            for (int i = 0; i < tokens.length; i++) {
+                if (!tokens[i].equals(other[i]) && !WILDCARD.equals(tokens[i])) {
+                    tokens[i] = WILDCARD;
+                }
+            }
+        }
+
+        private String template() {
+            return String.join(" ", tokens);
+        }
+    }
+}
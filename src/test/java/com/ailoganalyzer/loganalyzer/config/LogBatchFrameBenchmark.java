@@ -0,0 +1,151 @@
+package com.ailoganalyzer.loganalyzer.config;
+
+import com.ailoganalyzer.loganalyzer.dto.LogBatch;
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.model.MetadataField;
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import graphql.ExecutionInput;
+import graphql.GraphQL;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server cost of delivering 200 logs to 100 or 500 subscribers: executing each subscriber's selection with
+ * the real schema and encoding its frames as GraphQlWebSocketHandler does. With logAlerts every subscriber
+ * gets one message per log. With logAlertsBatch all subscribers share one LogBatch: selecting logs resolves
+ * and encodes every log per subscriber, while selecting payload copies the bytes the batch encodes once.
+ * Run with the procedure in TESTING.md, section 4.9.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogBatchFrameBenchmark {
+
+    private static final int LOGS = 200;
+    private static final String LOG_FIELDS = "id timestamp application message severity source host metadata { key value }";
+    private static final Map<String, String> SELECTIONS = Map.of(
+            "logAlerts", "{ benchmarkLog { " + LOG_FIELDS + " } }",
+            "batch-logs", "{ benchmarkBatch { count logs { " + LOG_FIELDS + " } } }",
+            "batch-payload", "{ benchmarkBatch { count payload } }");
+
+    @Param({"100", "500"})
+    private int subscribers;
+
+    // logAlerts: one message per log and subscriber; batch-logs and batch-payload: one message per subscriber
+    @Param({"logAlerts", "batch-logs", "batch-payload"})
+    private String delivery;
+
+    private GraphQL graphQl;
+    private GraphQlWebSocketHandler handler;
+    private ObjectMapper objectMapper;
+    private List<Log> logs;
+    private String query;
+
+    @Setup
+    public void setUp() throws IOException {
+        String schema;
+        try (InputStream in = getClass().getResourceAsStream("/graphql/schema.graphqls")) {
+            schema = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        // A query field standing in for the subscription, which resolves the same selection per event
+        GraphQLSchema graphQlSchema = new SchemaGenerator().makeExecutableSchema(
+                new SchemaParser().parse(schema + "\nextend type Query { benchmarkBatch: LogBatch! benchmarkLog: Log! }\n"),
+                RuntimeWiring.newRuntimeWiring().scalar(GraphQlScalarConfig.RAW_JSON).build());
+        Map<String, PreparsedDocumentEntry> documents = new ConcurrentHashMap<>();
+        graphQl = GraphQL.newGraphQL(graphQlSchema)
+                .preparsedDocumentProvider((input, parse) -> documents.computeIfAbsent(input.getQuery(), q -> parse.apply(input)))
+                .build();
+
+        // Configured like Spring Boot's mapper
+        objectMapper = JsonMapper.builder().findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+        handler = new GraphQlWebSocketHandler(null, objectMapper, new GraphQlWebSocketHandler.Settings(
+                10000, 0, 10000, 1048576, 100));
+
+        logs = new ArrayList<>();
+        for (int i = 0; i < LOGS; i++) {
+            logs.add(Log.builder()
+                    .id((long) i)
+                    .timestamp(Instant.parse("2024-03-17T12:00:00Z").plusMillis(i))
+                    .application("checkout-service")
+                    .message("Payment request " + i + " failed after 1200ms: upstream returned 503")
+                    .severity(Severity.ERROR)
+                    .source("PaymentClient")
+                    .host("node-" + (i % 8))
+                    .metadata(List.of(new MetadataField("region", "eu-west-1")))
+                    .build());
+        }
+        query = SELECTIONS.get(delivery);
+    }
+
+    @TearDown
+    public void tearDown() {
+        handler.shutdown();
+    }
+
+    @Benchmark
+    public void deliver(Blackhole blackhole) {
+        if (delivery.equals("logAlerts")) {
+            for (Log logEntry : logs) {
+                Map<String, Object> root = Map.of("benchmarkLog", logEntry);
+                for (int subscriber = 0; subscriber < subscribers; subscriber++) {
+                    blackhole.consume(nextFrame(root, subscriber));
+                }
+            }
+            return;
+        }
+        // A new batch each time, so its payload is encoded once per delivery as in LogBatchStreams
+        Map<String, Object> root = Map.of("benchmarkBatch", new LogBatch(logs, this::toJson));
+        for (int subscriber = 0; subscriber < subscribers; subscriber++) {
+            blackhole.consume(nextFrame(root, subscriber));
+        }
+    }
+
+    private TextMessage nextFrame(Map<String, Object> root, int subscriber) {
+        Map<String, Object> result = graphQl.execute(ExecutionInput.newExecutionInput(query).root(root)).toSpecification();
+        return handler.encode("next", String.valueOf(subscriber), result);
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
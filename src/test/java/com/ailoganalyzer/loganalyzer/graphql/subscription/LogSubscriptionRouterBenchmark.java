@@ -0,0 +1,117 @@
+package com.ailoganalyzer.loganalyzer.graphql.subscription;
+
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of publishing one log on the publishing thread with 1,000 or 10,000 subscriptions, each with its
+ * own mix of severities, applications, hosts, keywords and, for one in ten, a message regex. Keywords are
+ * found in one scan per log, so the time follows the number of subscribers a log reaches rather than the
+ * number of keywords. Regexes cost only a lookup of their required literal here, as they are evaluated on
+ * the delivery scheduler.
+ * Run with the procedure in TESTING.md, section 4.9.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogSubscriptionRouterBenchmark {
+
+    private static final int WORDS = 2000;
+    private static final int APPLICATIONS = 50;
+    private static final int HOSTS = 20;
+
+    @Param({"1000", "10000"})
+    private int subscriptions;
+
+    private LogSubscriptionRouter router;
+    private final List<Disposable> subscribers = new ArrayList<>();
+    private Log[] logs;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        router = new LogSubscriptionRouter(new SimpleMeterRegistry(), 256,
+                LogSubscriptionRouter.OverflowPolicy.DROP_OLDEST, 4, 200, 100);
+        Random random = new Random(42);
+        Severity[] severities = Severity.values();
+        for (int i = 0; i < subscriptions; i++) {
+            Set<Severity> wanted = new HashSet<>();
+            for (int n = 1 + random.nextInt(2); n > 0; n--) {
+                wanted.add(severities[random.nextInt(severities.length)]);
+            }
+            Set<String> applications = random.nextInt(10) < 3 ? Set.of("app-" + random.nextInt(APPLICATIONS)) : Set.of();
+            Set<String> hosts = random.nextInt(10) == 0 ? Set.of("host-" + random.nextInt(HOSTS)) : Set.of();
+            Set<String> keywords = new HashSet<>();
+            for (int n = random.nextInt(3); n > 0; n--) {
+                keywords.add(word(random.nextInt(WORDS)));
+            }
+            String regex = random.nextInt(10) == 0 ? word(random.nextInt(WORDS)) + " [0-9]+" : null;
+            LogAlertFilter filter = new LogAlertFilter(wanted, applications, hosts, Map.of(), keywords, regex);
+            subscribers.add(router.subscribe(filter, null).subscribe(logEntry -> {
+            }));
+        }
+
+        logs = new Log[4096];
+        for (int i = 0; i < logs.length; i++) {
+            StringBuilder message = new StringBuilder();
+            for (int n = 0; n < 12; n++) {
+                message.append(word(random.nextInt(WORDS))).append(' ');
+            }
+            message.append(random.nextInt(100000));
+            logs[i] = Log.builder()
+                    .id((long) i)
+                    .application("app-" + random.nextInt(APPLICATIONS))
+                    .host("host-" + random.nextInt(HOSTS))
+                    .severity(severities[random.nextInt(severities.length)])
+                    .message(message.toString())
+                    .build();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        subscribers.forEach(Disposable::dispose);
+        router.stop();
+    }
+
+    @Benchmark
+    public void publish() {
+        Log logEntry = logs[next];
+        next = (next + 1) & (logs.length - 1);
+        router.publish(logEntry);
+    }
+
+    private static String word(int n) {
+        StringBuilder word = new StringBuilder("w");
+        do {
+            word.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return word.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import com.ailoganalyzer.loganalyzer.config.KafkaAnomalyConfig;
+import com.ailoganalyzer.loganalyzer.config.KafkaConfig;
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Consumer throughput of the keyed log topic with one listener thread against one per partition. Logs are
+ * published through KafkaProducerService, so they are keyed by application, and every poll costs a fixed
+ * delay standing in for the bulk request. More threads must drain the topic faster while each application's
+ * logs still arrive on one partition in the order they were sent.
+ */
+@EmbeddedKafka
+@Slf4j
+class KafkaListenerConcurrencyTest {
+
+    private static final int PARTITIONS = 6;
+    private static final int APPLICATIONS = 30;
+    private static final int LOGS = 3000;
+    private static final int BATCH_SIZE = 50;
+    private static final long BULK_REQUEST_MS = 20;
+
+    private final List<AnnotationConfigApplicationContext> contexts = new ArrayList<>();
+
+    @Configuration
+    @EnableKafka
+    static class ListenerConfig {
+    }
+
+    // Stands in for KafkaConsumerService, recording where and in which order each application's logs arrive
+    static class IndexingRecorder {
+        private final Map<String, List<Long>> idsByApplication = new ConcurrentHashMap<>();
+        private final Map<String, Set<Integer>> partitionsByApplication = new ConcurrentHashMap<>();
+        private final AtomicInteger received = new AtomicInteger();
+        private final AtomicLong firstReceivedNanos = new AtomicLong();
+        private final AtomicLong lastReceivedNanos = new AtomicLong();
+
+        @KafkaListener(id = "indexing", topics = "${spring.kafka.topic.name}",
+                containerFactory = "kafkaListenerContainerFactory", properties = "auto.offset.reset=earliest")
+        public void consume(List<ConsumerRecord<String, Log>> records, Acknowledgment acknowledgment)
+                throws InterruptedException {
+            firstReceivedNanos.compareAndSet(0, System.nanoTime());
+            TimeUnit.MILLISECONDS.sleep(BULK_REQUEST_MS);
+            for (ConsumerRecord<String, Log> record : records) {
+                idsByApplication.computeIfAbsent(record.key(), key -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(record.value().getId());
+                partitionsByApplication.computeIfAbsent(record.key(), key -> ConcurrentHashMap.newKeySet())
+                        .add(record.partition());
+            }
+            acknowledgment.acknowledge();
+            received.addAndGet(records.size());
+            lastReceivedNanos.set(System.nanoTime());
+        }
+
+        private Duration elapsed() {
+            return Duration.ofNanos(lastReceivedNanos.get() - firstReceivedNanos.get());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        contexts.forEach(AnnotationConfigApplicationContext::close);
+    }
+
+    @Test
+    void concurrentListenersDrainFasterAndKeepOrderPerKey(EmbeddedKafkaBroker broker) {
+        Duration single = drain(broker, 1);
+        Duration concurrent = drain(broker, PARTITIONS);
+        log.info("Consumed {} logs in {} ms with 1 listener thread and in {} ms with {}",
+                LOGS, single.toMillis(), concurrent.toMillis(), PARTITIONS);
+
+        assertThat(concurrent.multipliedBy(2)).isLessThan(single);
+    }
+
+    private Duration drain(EmbeddedKafkaBroker broker, int concurrency) {
+        String topic = "keyed-logs-" + concurrency;
+        broker.addTopics(new NewTopic(topic, PARTITIONS, (short) 1));
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        contexts.add(context);
+        IndexingRecorder recorder = new IndexingRecorder();
+        TestPropertyValues.of(
+                "spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                "spring.kafka.consumer.group-id=concurrency-test-" + concurrency,
+                "spring.kafka.topic.name=" + topic,
+                "spring.kafka.listener.concurrency=" + concurrency,
+                "loganalyzer.indexing.batch-size=" + BATCH_SIZE,
+                "loganalyzer.indexing.fetch-min-bytes=1").applyTo(context);
+        context.registerBean(IndexingRecorder.class, () -> recorder);
+        context.register(ListenerConfig.class, KafkaConfig.class, KafkaAnomalyConfig.class, KafkaProducerService.class);
+        context.refresh();
+
+        List<Log> logs = new ArrayList<>(LOGS);
+        for (long id = 0; id < LOGS; id++) {
+            logs.add(Log.builder()
+                    .id(id)
+                    .timestamp(Instant.now())
+                    .application("app-" + (id % APPLICATIONS))
+                    .message("Test log " + id)
+                    .severity(Severity.INFO)
+                    .build());
+        }
+        context.getBean(KafkaProducerService.class).publishLogs(logs).join();
+
+        await().atMost(Duration.ofSeconds(60)).until(() -> recorder.received.get() >= LOGS);
+        assertThat(recorder.received.get()).isEqualTo(LOGS);
+        assertThat(recorder.idsByApplication).hasSize(APPLICATIONS);
+        recorder.idsByApplication.forEach((application, ids) -> {
+            assertThat(ids).as("order of %s", application).isSorted().hasSize(LOGS / APPLICATIONS);
+            assertThat(recorder.partitionsByApplication.get(application)).as("partitions of %s", application).hasSize(1);
+        });
+        return recorder.elapsed();
+    }
+}
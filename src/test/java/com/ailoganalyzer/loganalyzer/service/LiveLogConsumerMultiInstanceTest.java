@@ -0,0 +1,206 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import com.ailoganalyzer.loganalyzer.config.KafkaConfig;
+import com.ailoganalyzer.loganalyzer.graphql.subscription.LogSubscriptionRouter;
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Two application instances on one broker, each with the real KafkaConfig and LiveLogConsumer. Every
+ * instance must see every log on the live stream, while the indexing group still splits the logs
+ * between them. A larger batch, sent while the live consumers are paused, then measures each instance's
+ * fan-out throughput: the time from the first to the last log its live consumer hands to the subscription
+ * router.
+ */
+@EmbeddedKafka(partitions = 3, topics = LiveLogConsumerMultiInstanceTest.TOPIC)
+@Slf4j
+class LiveLogConsumerMultiInstanceTest {
+
+    static final String TOPIC = "logs-multi-instance-test";
+
+    private static final int LOGS = 200;
+    private static final int THROUGHPUT_LOGS = 20_000;
+    // Marks logs sent only to find out when both live consumers are reading
+    private static final long WARM_UP_ID = -1;
+
+    private final List<Instance> instances = new ArrayList<>();
+
+    private static final class Instance {
+        private final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        private final Queue<Long> published = new ConcurrentLinkedQueue<>();
+        private final IndexingRecorder indexing = new IndexingRecorder();
+        private final AtomicLong firstPublishedNanos = new AtomicLong();
+        private final AtomicLong lastPublishedNanos = new AtomicLong();
+
+        private void record(long id) {
+            published.add(id);
+            if (id >= LOGS) {
+                firstPublishedNanos.compareAndSet(0, System.nanoTime());
+                lastPublishedNanos.set(System.nanoTime());
+            }
+        }
+
+        private long publishedSince(long firstId) {
+            return published.stream().filter(id -> id >= firstId).count();
+        }
+    }
+
+    @Configuration
+    @EnableKafka
+    static class ListenerConfig {
+    }
+
+    // Stands in for KafkaConsumerService in the shared indexing group
+    static class IndexingRecorder {
+        private final Queue<Long> indexed = new ConcurrentLinkedQueue<>();
+
+        @KafkaListener(id = "indexing", idIsGroup = false, topics = TOPIC, containerFactory = "kafkaListenerContainerFactory")
+        public void consume(List<ConsumerRecord<String, Log>> records, Acknowledgment acknowledgment) {
+            records.forEach(record -> indexed.add(record.value().getId()));
+            acknowledgment.acknowledge();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        instances.forEach(instance -> instance.context.close());
+    }
+
+    @Test
+    void everyInstanceReceivesEveryLiveLog(EmbeddedKafkaBroker broker) {
+        KafkaTemplate<String, Log> kafkaTemplate = startInstances(broker);
+
+        send(kafkaTemplate, 0, LOGS);
+
+        Set<Long> expected = LongStream.range(0, LOGS).boxed().collect(Collectors.toSet());
+        await().atMost(Duration.ofSeconds(30)).untilAsserted(() -> {
+            for (Instance instance : instances) {
+                assertThat(withoutWarmUp(instance.published)).hasSize(LOGS).containsExactlyInAnyOrderElementsOf(expected);
+            }
+            List<Long> indexed = instances.stream()
+                    .flatMap(instance -> withoutWarmUp(instance.indexing.indexed).stream())
+                    .toList();
+            assertThat(indexed).hasSize(LOGS).containsExactlyInAnyOrderElementsOf(expected);
+        });
+        // Both instances took part in indexing
+        assertThat(instances).allSatisfy(instance -> assertThat(instance.indexing.indexed).isNotEmpty());
+
+        // The live consumers are paused while the batch is sent, so only their own throughput is measured
+        instances.forEach(instance -> liveContainer(instance).pause());
+        await().atMost(Duration.ofSeconds(30))
+                .until(() -> instances.stream().allMatch(instance -> liveContainer(instance).isContainerPaused()));
+        send(kafkaTemplate, LOGS, LOGS + THROUGHPUT_LOGS);
+        instances.forEach(instance -> liveContainer(instance).resume());
+        await().atMost(Duration.ofSeconds(120)).pollInterval(Duration.ofMillis(200)).untilAsserted(() -> {
+            for (Instance instance : instances) {
+                assertThat(instance.publishedSince(LOGS)).isEqualTo(THROUGHPUT_LOGS);
+            }
+        });
+        for (int i = 0; i < instances.size(); i++) {
+            Instance instance = instances.get(i);
+            Duration elapsed = Duration.ofNanos(instance.lastPublishedNanos.get() - instance.firstPublishedNanos.get());
+            log.info("Instance {} fanned out {} logs in {} ms ({} logs/s)", i, THROUGHPUT_LOGS, elapsed.toMillis(),
+                    THROUGHPUT_LOGS * 1000L / Math.max(1, elapsed.toMillis()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private KafkaTemplate<String, Log> startInstances(EmbeddedKafkaBroker broker) {
+        instances.add(start(broker));
+        instances.add(start(broker));
+        KafkaTemplate<String, Log> kafkaTemplate = instances.get(0).context.getBean(KafkaTemplate.class);
+
+        // Both groups start at the latest offset, so only logs sent once every consumer is reading count
+        await().atMost(Duration.ofSeconds(60)).pollInterval(Duration.ofMillis(500)).until(() -> {
+            kafkaTemplate.send(TOPIC, "warm-up", log(WARM_UP_ID));
+            return instances.stream().allMatch(instance -> instance.published.contains(WARM_UP_ID))
+                    && instances.stream().allMatch(instance -> indexingPartitions(instance) > 0)
+                    && instances.stream().mapToInt(LiveLogConsumerMultiInstanceTest::indexingPartitions).sum() == 3;
+        });
+        return kafkaTemplate;
+    }
+
+    private static void send(KafkaTemplate<String, Log> kafkaTemplate, long fromId, long toId) {
+        for (long id = fromId; id < toId; id++) {
+            kafkaTemplate.send(TOPIC, "app-" + (id % 10), log(id));
+        }
+        kafkaTemplate.flush();
+    }
+
+    private Instance start(EmbeddedKafkaBroker broker) {
+        Instance instance = new Instance();
+        LogSubscriptionRouter router = mock(LogSubscriptionRouter.class);
+        doAnswer(invocation -> {
+            instance.record(invocation.<Log>getArgument(0).getId());
+            return null;
+        }).when(router).publish(any());
+
+        TestPropertyValues.of(
+                "spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                "spring.kafka.consumer.group-id=loganalyzer-indexing-test",
+                "spring.kafka.topic.name=" + TOPIC,
+                "spring.kafka.listener.concurrency=1",
+                "loganalyzer.indexing.fetch-min-bytes=1").applyTo(instance.context);
+        instance.context.registerBean(LogSubscriptionRouter.class, () -> router);
+        instance.context.registerBean(IndexingRecorder.class, () -> instance.indexing);
+        instance.context.register(ListenerConfig.class, KafkaConfig.class, LogRateWindow.class, LiveLogConsumer.class);
+        instance.context.refresh();
+        return instance;
+    }
+
+    private static MessageListenerContainer liveContainer(Instance instance) {
+        return instance.context.getBean(KafkaListenerEndpointRegistry.class).getListenerContainer("live-logs");
+    }
+
+    private static int indexingPartitions(Instance instance) {
+        MessageListenerContainer container = instance.context.getBean(KafkaListenerEndpointRegistry.class)
+                .getListenerContainer("indexing");
+        return container != null && container.getAssignedPartitions() != null ? container.getAssignedPartitions().size() : 0;
+    }
+
+    private static List<Long> withoutWarmUp(Queue<Long> ids) {
+        return ids.stream().filter(id -> id != WARM_UP_ID).toList();
+    }
+
+    private static Log log(long id) {
+        return Log.builder()
+                .id(id)
+                .timestamp(Instant.now())
+                .application("app-" + (id % 10))
+                .message("Test log " + id)
+                .severity(Severity.INFO)
+                .build();
+    }
+}
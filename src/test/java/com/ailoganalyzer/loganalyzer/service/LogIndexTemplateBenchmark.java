@@ -0,0 +1,163 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.indices.IndexTemplate;
+import co.elastic.clients.elasticsearch.indices.stats.IndicesStats;
+import com.ailoganalyzer.loganalyzer.config.ElasticsearchConfig;
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.model.MetadataField;
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs per second written to one daily index by LogIndexer, and the index's size once force-merged to one
+ * segment, for an index created with Spring Data's default settings and the annotation mapping
+ * ({@code defaults}), from the logs template ({@code template}), and from the template in bulk-load mode
+ * ({@code bulk-load}). The size and document counts are printed after each run.
+ * Needs Elasticsearch on localhost:9200, as configured in ElasticsearchConfig. The benchmark only writes to
+ * logs-2000.01.01, which it deletes before each run; bulk-load mode applies to every log index while the
+ * bulk-load run lasts, so use a cluster without other log indices. The defaults run removes the logs
+ * template and puts it back afterwards.
+ * Run with the procedure in TESTING.md, section 4.9.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class LogIndexTemplateBenchmark {
+
+    private static final int LOGS = 1000;
+    // A day no real log falls on, so the index holds only this benchmark's documents
+    private static final Instant DAY = Instant.parse("2000-01-01T00:00:00Z");
+    private static final String INDEX = "logs-2000.01.01";
+
+    @Param({"defaults", "template", "bulk-load"})
+    private String setup;
+
+    private ConfigurableApplicationContext context;
+    private ElasticsearchClient elasticsearchClient;
+    private LogIndexTemplateManager templateManager;
+    private LogIndexer logIndexer;
+    private IndexTemplate removedTemplate;
+    private long nextId;
+
+    @Configuration
+    @Import({ElasticsearchConfig.class, LogIndexTemplateManager.class, LogIndexRouter.class, LogIndexer.class})
+    static class IndexingConfig {
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(IndexingConfig.class)
+                .web(WebApplicationType.NONE)
+                .run();
+        elasticsearchClient = context.getBean(ElasticsearchClient.class);
+        templateManager = context.getBean(LogIndexTemplateManager.class);
+        logIndexer = context.getBean(LogIndexer.class);
+
+        elasticsearchClient.indices().delete(d -> d.index(INDEX).ignoreUnavailable(true));
+        switch (setup) {
+            case "defaults" -> {
+                // What LogIndexRouter created before the template: default settings and the annotation mapping
+                removedTemplate = elasticsearchClient.indices().getIndexTemplate(g -> g.name(LogIndexTemplateManager.TEMPLATE_NAME))
+                        .indexTemplates().get(0).indexTemplate();
+                elasticsearchClient.indices().deleteIndexTemplate(d -> d.name(LogIndexTemplateManager.TEMPLATE_NAME));
+                ElasticsearchOperations elasticsearchOperations = context.getBean(ElasticsearchOperations.class);
+                elasticsearchOperations.indexOps(IndexCoordinates.of(INDEX))
+                        .create(Map.of(), elasticsearchOperations.indexOps(Log.class).createMapping(Log.class));
+            }
+            case "bulk-load" -> templateManager.startBulkLoad();
+            default -> {
+            }
+        }
+        // So LogIndexRouter creates the index from the template, or sees the one created above and leaves the template alone
+        context.getBean(LogIndexRouter.class).refreshExistingIndices();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try {
+            if (setup.equals("bulk-load")) {
+                templateManager.finishBulkLoad();
+            }
+            elasticsearchClient.indices().refresh(r -> r.index(INDEX));
+            elasticsearchClient.indices().forcemerge(f -> f.index(INDEX).maxNumSegments(1L));
+            IndicesStats stats = elasticsearchClient.indices().stats(s -> s.index(INDEX)).indices().get(INDEX);
+            long logs = elasticsearchClient.count(c -> c.index(INDEX)).count();
+            System.out.printf("%n%s: %d logs, %d Lucene documents, %d bytes on disk (primaries, one segment)%n",
+                    setup, logs, stats.primaries().docs().count(), stats.primaries().store().sizeInBytes());
+            elasticsearchClient.indices().delete(d -> d.index(INDEX).ignoreUnavailable(true));
+        } finally {
+            if (removedTemplate != null) {
+                restoreTemplate();
+            }
+            context.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOGS)
+    public List<Log> index() {
+        return logIndexer.indexAll(newLogs());
+    }
+
+    private void restoreTemplate() throws IOException {
+        elasticsearchClient.indices().putIndexTemplate(t -> t
+                .name(LogIndexTemplateManager.TEMPLATE_NAME)
+                .indexPatterns(removedTemplate.indexPatterns())
+                .version(removedTemplate.version())
+                .meta(removedTemplate.meta())
+                .template(m -> m
+                        .settings(removedTemplate.template().settings())
+                        .mappings(removedTemplate.template().mappings())));
+    }
+
+    private List<Log> newLogs() {
+        List<Log> logs = new ArrayList<>(LOGS);
+        for (int i = 0; i < LOGS; i++) {
+            long id = nextId++;
+            logs.add(Log.builder()
+                    .id(id)
+                    // Spread over the day, in no particular order, as logs from many hosts arrive
+                    .timestamp(DAY.plusMillis((id * 7919) % 86_400_000))
+                    .application("app-" + (id % 20))
+                    .message("Request " + id + " completed in " + (id % 500) + " ms")
+                    .severity(id % 50 == 0 ? Severity.ERROR : Severity.INFO)
+                    .host("node-" + (id % 8))
+                    .metadata(List.of(
+                            new MetadataField("test_type", "bulk"),
+                            new MetadataField("region", "region-" + (id % 4)),
+                            new MetadataField("trace_id", Long.toHexString(id * 31))))
+                    .build());
+        }
+        return logs;
+    }
+}
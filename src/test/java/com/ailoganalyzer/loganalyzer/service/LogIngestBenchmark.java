@@ -0,0 +1,166 @@
+package com.ailoganalyzer.loganalyzer.service;
+
+import com.ailoganalyzer.loganalyzer.config.JpaConfig;
+import com.ailoganalyzer.loganalyzer.model.Log;
+import com.ailoganalyzer.loganalyzer.model.MetadataField;
+import com.ailoganalyzer.loganalyzer.model.Severity;
+import com.ailoganalyzer.loganalyzer.repository.elasticsearch.LogElasticsearchRepository;
+import com.ailoganalyzer.loganalyzer.service.query.LogQueryCompiler;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Rows per second written to PostgreSQL by LogService, one log per transaction as POST /api/logs does
+ * against whole batches as POST /api/logs/batch does, with batched INSERTs or with COPY. Each log gets its
+ * outbox event in the same transaction; Elasticsearch and Kafka are not involved.
+ * Needs a database set up with database_setup.sql, given with -Dspring.datasource.url, username and
+ * password (default jdbc:postgresql://localhost:5432/loganalyzer). Strings are sent untyped, so the
+ * severity_enum column accepts the INSERTs. Only the benchmark's own rows are deleted.
+ * Run with the procedure in TESTING.md, section 4.9.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class LogIngestBenchmark {
+
+    private static final int LOGS = 1000;
+    private static final String APPLICATION = "ingest-benchmark";
+    // All rows go to one day, so they are easy to find and delete afterwards
+    private static final Instant TIMESTAMP = Instant.parse("2024-01-01T12:00:00Z");
+
+    // single: one transaction per log; insert-batch: saveLogs with JDBC-batched INSERTs; copy: saveLogs with COPY
+    @Param({"single", "insert-batch", "copy"})
+    private String path;
+
+    private ConfigurableApplicationContext context;
+    private LogService logService;
+    private JdbcTemplate jdbcTemplate;
+
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+            JdbcTemplateAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class, JacksonAutoConfiguration.class})
+    @EntityScan(basePackageClasses = Log.class)
+    @Import({JpaConfig.class, LogService.class, LogCopyWriter.class, OutboxRelay.class, LogQueryCompiler.class})
+    static class PersistenceConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        KafkaProducerService kafkaProducerService() {
+            return mock(KafkaProducerService.class);
+        }
+
+        @Bean
+        LogElasticsearchRepository logElasticsearchRepository() {
+            return mock(LogElasticsearchRepository.class);
+        }
+
+        @Bean
+        ElasticsearchOperations elasticsearchOperations() {
+            return mock(ElasticsearchOperations.class);
+        }
+
+        @Bean
+        ElasticsearchClient elasticsearchClient() {
+            return mock(ElasticsearchClient.class);
+        }
+
+        @Bean
+        LogIndexRouter logIndexRouter() {
+            return mock(LogIndexRouter.class);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(PersistenceConfig.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:postgresql://localhost:5432/loganalyzer",
+                        "spring.datasource.username=postgres",
+                        "spring.datasource.hikari.data-source-properties.stringtype=unspecified",
+                        "loganalyzer.ingest.copy-threshold=" + (path.equals("copy") ? 1 : Integer.MAX_VALUE))
+                .run();
+        logService = context.getBean(LogService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM log_outbox WHERE log_timestamp = ?", Timestamp.from(TIMESTAMP));
+        jdbcTemplate.update("DELETE FROM logs WHERE timestamp = ? AND application = ?",
+                Timestamp.from(TIMESTAMP), APPLICATION);
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOGS)
+    public void ingest() {
+        List<Log> logs = newLogs();
+        if (path.equals("single")) {
+            logs.forEach(logService::saveLog);
+        } else {
+            logService.saveLogs(logs);
+        }
+    }
+
+    private static List<Log> newLogs() {
+        List<Log> logs = new ArrayList<>(LOGS);
+        for (int i = 0; i < LOGS; i++) {
+            logs.add(Log.builder()
+                    .timestamp(TIMESTAMP)
+                    .application(APPLICATION)
+                    .message("Bulk test log " + i)
+                    .severity(Severity.INFO)
+                    .host("node-" + (i % 8))
+                    .metadata(List.of(new MetadataField("test_type", "bulk")))
+                    .build());
+        }
+        return logs;
+    }
+}
@@ -0,0 +1,83 @@
+package com.ailoganalyzer.loganalyzer.service.template;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Messages per second given a template, after mining messages of 100 or 10,000 distinct shapes, against
+ * the regex chain that extracted error patterns before the miner. The miner's rate should stay roughly
+ * flat as the number of templates grows.
+ * Run with the procedure in TESTING.md, section 4.9.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogTemplateMinerBenchmark {
+
+    @Param({"100", "10000"})
+    private int shapes;
+
+    private LogTemplateMiner miner;
+    private String[] messages;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        miner = new LogTemplateMiner(2, 0.5, 100, 200);
+        Random random = new Random(42);
+        messages = new String[32768];
+        for (int i = 0; i < messages.length; i++) {
+            int shape = random.nextInt(shapes);
+            messages[i] = word(shape % 50) + " " + word(shape / 50) + " failed for request " + random.nextInt(100000)
+                    + " after " + random.nextInt(5000) + "ms user=" + word(random.nextInt(1000));
+        }
+        for (String message : messages) {
+            miner.match(message);
+        }
+    }
+
+    @Benchmark
+    public LogTemplateMiner.TemplateMatch match() {
+        String message = messages[next];
+        next = (next + 1) & (messages.length - 1);
+        return miner.match(message);
+    }
+
+    // The pattern extraction AnomalyDetectionService used before templates were mined at index time
+    @Benchmark
+    public String regexPattern() {
+        String message = messages[next];
+        next = (next + 1) & (messages.length - 1);
+        return message.replaceAll("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}", "[TIMESTAMP]")
+                .replaceAll("\\b\\d+\\b", "[NUMBER]")
+                .replaceAll("\\b[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}\\b",
+                        "[UUID]")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    // Letters only, so the word is kept as a literal token rather than masked
+    private static String word(int n) {
+        StringBuilder word = new StringBuilder("op");
+        do {
+            word.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return word.toString();
+    }
+}